@@ -0,0 +1,57 @@
+package tv.mangrana.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import tv.mangrana.downloads.workers.radarr.jobs.RadarrJobFile;
+import tv.mangrana.downloads.workers.sonarr.jobs.SonarrJobFile;
+import tv.mangrana.exception.IncorrectWorkingReferencesException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing a grabbed job file, paid for every job file found on each pick-up loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobFileParsingBenchmark {
+
+    File sonarrJobFile;
+    File radarrJobFile;
+
+    @Setup(Level.Trial)
+    public void writeJobFiles() throws IOException {
+        Path jobsFolder = Files.createTempDirectory("jobs-benchmark");
+        sonarrJobFile = write(jobsFolder.resolve("sonarr-grab.log"),
+                "sonarr_release_title: Some Serie S01 1080p WEB-DL\n" +
+                "sonarr_series_id: 123\n" +
+                "sonarr_release_episodecount: 10\n" +
+                "sonarr_download_id: 0123456789ABCDEF0123456789ABCDEF01234567\n");
+        radarrJobFile = write(jobsFolder.resolve("radarr-grab.log"),
+                "radarr_release_title: Some Movie 2022 1080p WEB-DL\n" +
+                "radarr_movie_id: 456\n" +
+                "radarr_download_id: 76543210FEDCBA9876543210FEDCBA9876543210\n");
+    }
+
+    @Benchmark
+    public SonarrJobFile parseSonarrJobFile() throws IncorrectWorkingReferencesException {
+        return new SonarrJobFile(sonarrJobFile);
+    }
+
+    @Benchmark
+    public RadarrJobFile parseRadarrJobFile() throws IncorrectWorkingReferencesException {
+        return new RadarrJobFile(radarrJobFile);
+    }
+
+    private static File write(Path path, String content) throws IOException {
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+
+}
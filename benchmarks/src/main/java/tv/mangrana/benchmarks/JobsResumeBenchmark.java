@@ -0,0 +1,54 @@
+package tv.mangrana.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import tv.mangrana.downloads.workers.common.jobs.JobsResume;
+import tv.mangrana.jobs.JobFileManager.JobFileType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of keeping and checking the jobs resume with a big amount of tracked jobs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobsResumeBenchmark {
+
+    @Param({"10000"})
+    int jobsCount;
+
+    JobsResume jobsResume;
+    int nextJob;
+
+    @Setup(Level.Trial)
+    public void fillResume() {
+        jobsResume = new JobsResume();
+        for (int i = 0; i < jobsCount; i++) {
+            jobsResume.put(JobFileType.SONARR_JOBS, jobTitle(i), "initiated");
+        }
+    }
+
+    @Benchmark
+    public void putExistingJob() {
+        nextJob = (nextJob + 1) % jobsCount;
+        jobsResume.put(JobFileType.SONARR_JOBS, jobTitle(nextJob), (nextJob & 1) == 0 ? "working" : "has filename");
+    }
+
+    @Benchmark
+    public boolean sameResumeAlreadyPrinted() {
+        return jobsResume.sameResumeAlreadyPrinted();
+    }
+
+    @Benchmark
+    public void resumeJobsLogPrintWithoutChanges() {
+        jobsResume.resumeJobsLogPrint();
+    }
+
+    private static String jobTitle(int i) {
+        return "Some Serie S01E" + i + " 1080p WEB-DL ..";
+    }
+
+}
@@ -0,0 +1,69 @@
+package tv.mangrana.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import tv.mangrana.downloads.workers.common.ArrQueuePoller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving the output path of a downloadId from a Sonarr/Radarr queue: scanning the records vs the poller's index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueueLookupBenchmark {
+
+    static class QueueRecord {
+        final String downloadId;
+        final String outputPath;
+        final String eta = "2022-08-01T10:00:00Z";
+        final Double size = 1.5e9;
+        QueueRecord(String downloadId, String outputPath) {
+            this.downloadId = downloadId;
+            this.outputPath = outputPath;
+        }
+    }
+
+    @Param({"100", "1000"})
+    int queueSize;
+
+    List<QueueRecord> records;
+    Map<String, ArrQueuePoller.QueueEntry> index;
+    String lastDownloadId;
+
+    @Setup(Level.Trial)
+    public void fillQueue() {
+        records = new ArrayList<>(queueSize);
+        for (int i = 0; i < queueSize; i++) {
+            records.add(new QueueRecord("DOWNLOAD" + i, "/downloads/series/Some.Serie.S01E" + i));
+        }
+        lastDownloadId = "DOWNLOAD" + (queueSize - 1);
+        index = buildIndex();
+    }
+
+    @Benchmark
+    public String scanRecords() {
+        for (QueueRecord rcd : records) {
+            if (Objects.equals(rcd.downloadId, lastDownloadId)) return rcd.outputPath;
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String lookupIndex() {
+        return index.get(lastDownloadId).getOutputPath();
+    }
+
+    @Benchmark
+    public Map<String, ArrQueuePoller.QueueEntry> buildIndex() {
+        return ArrQueuePoller.indexByDownloadId(records, rcd -> rcd.downloadId, rcd -> rcd.outputPath, rcd -> ArrQueuePoller.parseEta(rcd.eta), rcd -> rcd.size);
+    }
+
+}
@@ -0,0 +1,38 @@
+package tv.mangrana.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import tv.mangrana.downloads.workers.common.RetryEngine;
+import tv.mangrana.exception.TooMuchTriesException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Overhead the RetryEngine adds around a lookup, with no wait between attempts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RetryEngineBenchmark {
+
+    @Param({"1", "5"})
+    int attemptsUntilFound;
+
+    RetryEngine<String> retryEngine;
+
+    @Setup(Level.Trial)
+    public void createEngine() {
+        retryEngine = new RetryEngine<>("Benchmark", 0, msg -> {});
+    }
+
+    @Benchmark
+    public String tryUntilGotDesired() throws TooMuchTriesException, InterruptedException {
+        int[] attempts = {0};
+        Supplier<String> lookup = () -> ++attempts[0] < attemptsUntilFound ? null : "found";
+        return retryEngine.tryUntilGotDesired(lookup, RetryEngine.TOO_MUCH_RETRIES_INFINITE_THRESHOLD);
+    }
+
+}
@@ -1,5 +1,6 @@
 package tv.mangrana.config;
 
+import org.apache.commons.lang.StringUtils;
 import tv.mangrana.exception.IncorrectWorkingReferencesException;
 
 public class ConfigFileLoader extends CommonConfigFileLoader<ConfigFileLoader.ProjectConfiguration> {
@@ -22,6 +23,44 @@ public class ConfigFileLoader extends CommonConfigFileLoader<ConfigFileLoader.Pr
         JOB_FILES_PICK_UP_INTERVAL,
         SONARR_RETRY_INTERVAL,
         RADARR_RETRY_INTERVAL,
+        JOBS_MAX_CONCURRENCY,
+        JOBS_QUEUE_DEPTH,
+        COPY_ADMISSION_MODE,
+        COPY_PERMITS_PER_DESTINATION,
+        SEASON_COPY_PARALLELISM,
+        EPISODE_COPY_RETRIES,
+        DRIVE_BATCH_REQUESTS,
+        DRIVE_CACHE_TTL_MINUTES,
+        DRIVE_CACHE_NOT_FOUND_TTL_SECONDS,
+        DRIVE_CACHE_MAX_ENTRIES,
+        DRIVE_CHANGES_WATCHER,
+        DRIVE_CHANGES_POLL_SECONDS,
+        DRIVE_CHANGES_WAIT_MINUTES,
+        DRIVE_CHANGES_TOKEN_FILE,
+        JOB_STATE_STORE_FILE,
+        JOBS_RESUME_RETENTION_HOURS,
+        METRICS_PORT,
+        RETRY_POLICIES,
+        DRIVE_RATE_LIMIT_PER_SECOND,
+        DRIVE_RATE_LIMIT_BURST,
+        DRIVE_RATE_LIMIT_RETRIES,
+        SHUTDOWN_DRAIN_SECONDS,
+        DRIVE_LIST_PAGE_SIZE,
+        JOBS_VIRTUAL_THREADS,
+        COPY_PRIORITY,
+        JOBS_START_STAGGER_SECONDS,
+        REFRESH_COALESCE_SECONDS,
+        ARR_OUTPUT_PATH_WAIT_MINUTES,
+    }
+
+    public int getIntConfig(ProjectConfiguration key, int defaultValue) {
+        String value = getConfig(key);
+        if (StringUtils.isBlank(value)) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
     }
 
     @Override
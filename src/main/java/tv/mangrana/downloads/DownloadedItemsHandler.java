@@ -4,6 +4,7 @@ import tv.mangrana.config.ConfigFileLoader;
 import tv.mangrana.downloads.workers.common.GrabbedDownloadsHandler;
 import tv.mangrana.downloads.workers.common.Handler;
 import tv.mangrana.exception.IncorrectWorkingReferencesException;
+import tv.mangrana.metrics.MetricsServer;
 
 import java.util.EnumMap;
 
@@ -25,6 +26,7 @@ public class DownloadedItemsHandler {
         log("************************************************************************************************");
         log("************************************************************************************************");
         configFileLoader = new ConfigFileLoader();
+        MetricsServer.startIfConfigured(configFileLoader);
         actionHandler = new EnumMap<>(ActionType.class);
         actionHandler.put(ActionType.DOWNLOADS_REMOTE_COPY, new GrabbedDownloadsHandler(configFileLoader));
     }
@@ -0,0 +1,173 @@
+package tv.mangrana.downloads.workers.common;
+
+import org.apache.commons.lang.StringUtils;
+import tv.mangrana.metrics.Counter;
+import tv.mangrana.metrics.MetricsRegistry;
+import tv.mangrana.utils.EasyLogger;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Polls the queue of a Sonarr/Radarr instance once per interval on behalf of every waiting job,
+ * and completes each job's future as soon as the output path of its downloadId appears.
+ */
+public class ArrQueuePoller {
+
+    private static final Counter POLLS = MetricsRegistry.get().counter("adc_arr_queue_polls_total",
+            "Polls of the Sonarr/Radarr queue by app and outcome", "app", "outcome");
+
+    private final EasyLogger logger;
+    private final String appName;
+    private final Supplier<Map<String, QueueEntry>> queueIndexer;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, CompletableFuture<String>> waitingJobs = new ConcurrentHashMap<>();
+    private volatile Map<String, QueueEntry> lastIndex = Collections.emptyMap();
+    private ScheduledFuture<?> pollingTask;
+
+    public ArrQueuePoller(String appName, int intervalMinutes, Supplier<Map<String, QueueEntry>> queueIndexer) {
+        this(appName, TimeUnit.MINUTES.toMillis(intervalMinutes), queueIndexer, SharedScheduler.get());
+    }
+
+    public ArrQueuePoller(String appName, long intervalMillis, Supplier<Map<String, QueueEntry>> queueIndexer, ScheduledExecutorService scheduler) {
+        this.logger = new EasyLogger(appName + "QueuePoller");
+        this.appName = appName;
+        this.queueIndexer = queueIndexer;
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.scheduler = scheduler;
+    }
+
+    public static class QueueEntry {
+        private final String outputPath;
+        private final Instant estimatedCompletion;
+        private final Long sizeBytes;
+        public QueueEntry(String outputPath, Instant estimatedCompletion, Long sizeBytes) {
+            this.outputPath = outputPath;
+            this.estimatedCompletion = estimatedCompletion;
+            this.sizeBytes = sizeBytes;
+        }
+        public String getOutputPath() {
+            return outputPath;
+        }
+        public Instant getEstimatedCompletion() {
+            return estimatedCompletion;
+        }
+        public Long getSizeBytes() {
+            return sizeBytes;
+        }
+    }
+
+    /**
+     * Indexes the queue records by downloadId, with their output path (if already known), estimated completion time and size.
+     */
+    public static <R> Map<String, QueueEntry> indexByDownloadId(List<R> records, Function<R, String> downloadId,
+                                                               Function<R, String> outputPath, Function<R, Instant> estimatedCompletion,
+                                                               Function<R, Number> size) {
+        Map<String, QueueEntry> index = new HashMap<>();
+        if (Objects.isNull(records)) return index;
+        for (R rcd : records) {
+            String id = downloadId.apply(rcd);
+            if (StringUtils.isNotEmpty(id)) {
+                Number sizeBytes = size.apply(rcd);
+                index.putIfAbsent(id, new QueueEntry(outputPath.apply(rcd), estimatedCompletion.apply(rcd),
+                        Objects.isNull(sizeBytes) ? null : sizeBytes.longValue()));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the estimated completion time the *arr APIs give as an ISO-8601 text, or null if missing or malformed
+     */
+    public static Instant parseEta(String estimatedCompletion) {
+        if (StringUtils.isEmpty(estimatedCompletion)) return null;
+        try {
+            return Instant.parse(estimatedCompletion);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the download as seen on the last poll, or null if unknown
+     */
+    public QueueEntry getEntry(String downloadId) {
+        return lastIndex.get(downloadId);
+    }
+
+    public CompletableFuture<String> awaitOutputPath(String downloadId) {
+        QueueEntry knownEntry = lastIndex.get(downloadId);
+        if (Objects.nonNull(knownEntry) && StringUtils.isNotEmpty(knownEntry.getOutputPath())) {
+            return CompletableFuture.completedFuture(knownEntry.getOutputPath());
+        }
+        CompletableFuture<String> outputPathFuture = waitingJobs.computeIfAbsent(downloadId, id -> new CompletableFuture<>());
+        ensurePolling();
+        return outputPathFuture;
+    }
+
+    /**
+     * To be called when a job stops waiting (timed out, interrupted), so the queue stops being polled on its behalf.
+     */
+    public void forget(String downloadId, CompletableFuture<String> outputPathFuture) {
+        waitingJobs.remove(downloadId, outputPathFuture);
+    }
+
+    public int getWaitingCount() {
+        return waitingJobs.size();
+    }
+
+    private synchronized void ensurePolling() {
+        if (pollingTask == null) {
+            pollingTask = scheduler.scheduleWithFixedDelay(this::poll, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized boolean stopPollingIfIdle() {
+        if (waitingJobs.isEmpty() && pollingTask != null) {
+            pollingTask.cancel(false);
+            pollingTask = null;
+            return true;
+        }
+        return false;
+    }
+
+    private void poll() {
+        if (stopPollingIfIdle()) return;
+        Map<String, QueueEntry> index;
+        try {
+            index = queueIndexer.get();
+        } catch (Exception e) {
+            POLLS.inc(appName, "error");
+            logger.nLog("could not retrieve the queue, will retry later: {0}", e.getMessage());
+            return;
+        }
+        POLLS.inc(appName, "ok");
+        lastIndex = index;
+        int resolved = 0;
+        for (Map.Entry<String, CompletableFuture<String>> waitingJob : waitingJobs.entrySet()) {
+            QueueEntry entry = index.get(waitingJob.getKey());
+            if (Objects.nonNull(entry) && StringUtils.isNotEmpty(entry.getOutputPath())) {
+                waitingJob.getValue().complete(entry.getOutputPath());
+                waitingJobs.remove(waitingJob.getKey(), waitingJob.getValue());
+                resolved++;
+            }
+        }
+        logger.nLogD("queue polled: records={0}, resolved={1}, still waiting={2}",
+                index.size(), resolved, waitingJobs.size());
+    }
+
+}
@@ -0,0 +1,205 @@
+package tv.mangrana.downloads.workers.common;
+
+import com.google.api.services.drive.Drive;
+import org.o7planning.googledrive.example.GoogleDriveUtils;
+import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.config.LocalEnvironmentManager;
+import tv.mangrana.downloads.workers.radarr.MovieRefresher;
+import tv.mangrana.downloads.workers.sonarr.SerieRefresher;
+import tv.mangrana.google.api.client.DriveChangesWatcher;
+import tv.mangrana.google.api.client.DriveChildrenLister;
+import tv.mangrana.google.api.client.DriveMetadataCache;
+import tv.mangrana.google.api.client.DriveRateLimiter;
+import tv.mangrana.google.api.client.RemoteCopyService;
+import tv.mangrana.google.api.client.gateway.GoogleDriveApiGateway;
+import tv.mangrana.plex.url.PlexCommandLauncher;
+import tv.mangrana.radarr.api.client.gateway.RadarrApiGateway;
+import tv.mangrana.sonarr.api.client.gateway.SonarrApiGateway;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.*;
+
+/**
+ * Process-wide holder of the API clients, so every job reuses the same gateways (and their HTTP connections)
+ * instead of loading credentials and building new clients per job and per element handler.
+ * It also owns the pool the Drive copies run on, shut down with {@link #shutdown()}.
+ */
+public class ClientsRegistry {
+
+    private final ConfigFileLoader configFileLoader;
+
+    private GoogleDriveApiGateway googleDriveApiGateway;
+    private Drive driveService;
+    private DriveMetadataCache metadataCache;
+    private DriveRateLimiter driveRateLimiter;
+    private DriveChildrenLister driveChildrenLister;
+    private DriveChangesWatcher driveChangesWatcher;
+    private RemoteCopyService remoteCopyService;
+    private ExecutorService driveCopyExecutor;
+    private SonarrApiGateway sonarrApiGateway;
+    private RadarrApiGateway radarrApiGateway;
+    private PlexCommandLauncher plexCommander;
+    private RefreshCoalescer refreshCoalescer;
+    private SerieRefresher serieRefresher;
+    private MovieRefresher movieRefresher;
+    private ArrQueuePoller sonarrQueuePoller;
+    private ArrQueuePoller radarrQueuePoller;
+
+    public ClientsRegistry(ConfigFileLoader configFileLoader) {
+        this.configFileLoader = configFileLoader;
+    }
+
+    public synchronized GoogleDriveApiGateway googleDriveApiGateway() throws IOException {
+        if (googleDriveApiGateway == null) {
+            googleDriveApiGateway = new GoogleDriveApiGateway();
+        }
+        return googleDriveApiGateway;
+    }
+
+    public synchronized Drive driveService() throws IOException {
+        if (driveService == null) {
+            driveService = GoogleDriveUtils.getDriveService();
+        }
+        return driveService;
+    }
+
+    public synchronized DriveMetadataCache metadataCache() {
+        if (metadataCache == null) {
+            metadataCache = DriveMetadataCache.fromConfig(configFileLoader);
+        }
+        return metadataCache;
+    }
+
+    public synchronized DriveRateLimiter driveRateLimiter() {
+        if (driveRateLimiter == null) {
+            driveRateLimiter = DriveRateLimiter.fromConfig(configFileLoader);
+        }
+        return driveRateLimiter;
+    }
+
+    public synchronized DriveChildrenLister driveChildrenLister() {
+        if (driveChildrenLister == null) {
+            driveChildrenLister = new DriveChildrenLister(this::driveService, driveRateLimiter(),
+                    configFileLoader.getIntConfig(DRIVE_LIST_PAGE_SIZE, DriveChildrenLister.DEFAULT_PAGE_SIZE));
+        }
+        return driveChildrenLister;
+    }
+
+    /**
+     * @return null when the change feed is disabled by configuration, so downloads are looked up by polling
+     */
+    public synchronized DriveChangesWatcher driveChangesWatcher() {
+        if (driveChangesWatcher == null && Boolean.parseBoolean(configFileLoader.getConfig(DRIVE_CHANGES_WATCHER))) {
+            String tokenFile = configFileLoader.getConfig(DRIVE_CHANGES_TOKEN_FILE);
+            driveChangesWatcher = new DriveChangesWatcher(this::driveService,
+                    configFileLoader.getConfig(DOWNLOADS_TEAM_DRIVE_ID),
+                    Paths.get(tokenFile == null ? "/tokens/drive_changes_page_token" : tokenFile),
+                    TimeUnit.SECONDS.toMillis(configFileLoader.getIntConfig(DRIVE_CHANGES_POLL_SECONDS, 20)),
+                    SharedScheduler.get(),
+                    driveRateLimiter());
+        }
+        return driveChangesWatcher;
+    }
+
+    public synchronized RemoteCopyService remoteCopyService() throws IOException {
+        if (remoteCopyService == null) {
+            remoteCopyService = new RemoteCopyService(configFileLoader, googleDriveApiGateway(), metadataCache(),
+                    this::driveService, driveChangesWatcher(), driveRateLimiter(), driveChildrenLister(), driveCopyExecutor());
+        }
+        return remoteCopyService;
+    }
+
+    /**
+     * Shared by every season copy, so the episodes copied at once stay within season_copy_parallelism
+     * however many seasons are being copied.
+     */
+    public synchronized ExecutorService driveCopyExecutor() {
+        if (driveCopyExecutor == null) {
+            AtomicInteger threadCount = new AtomicInteger(1);
+            driveCopyExecutor = Executors.newFixedThreadPool(Math.max(1, configFileLoader.getIntConfig(SEASON_COPY_PARALLELISM, 1)), runnable -> {
+                Thread thread = new Thread(runnable, "drive-copy-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return driveCopyExecutor;
+    }
+
+    /**
+     * Lets the copies already handed to the pool finish, but takes no more.
+     */
+    public synchronized void shutdown() {
+        if (driveCopyExecutor != null) {
+            driveCopyExecutor.shutdown();
+        }
+    }
+
+    public synchronized SonarrApiGateway sonarrApiGateway() {
+        if (sonarrApiGateway == null) {
+            sonarrApiGateway = new SonarrApiGateway(configFileLoader);
+        }
+        return sonarrApiGateway;
+    }
+
+    public synchronized RadarrApiGateway radarrApiGateway() {
+        if (radarrApiGateway == null) {
+            radarrApiGateway = new RadarrApiGateway(configFileLoader);
+        }
+        return radarrApiGateway;
+    }
+
+    public synchronized PlexCommandLauncher plexCommander() {
+        if (plexCommander == null) {
+            plexCommander = new PlexCommandLauncher(configFileLoader);
+        }
+        return plexCommander;
+    }
+
+    public synchronized RefreshCoalescer refreshCoalescer() {
+        if (refreshCoalescer == null) {
+            refreshCoalescer = RefreshCoalescer.fromConfig(configFileLoader);
+        }
+        return refreshCoalescer;
+    }
+
+    public synchronized SerieRefresher serieRefresher() {
+        if (serieRefresher == null) {
+            serieRefresher = new SerieRefresher(sonarrApiGateway(), plexCommander(), refreshCoalescer());
+        }
+        return serieRefresher;
+    }
+
+    public synchronized MovieRefresher movieRefresher() {
+        if (movieRefresher == null) {
+            movieRefresher = new MovieRefresher(radarrApiGateway(), plexCommander(), refreshCoalescer());
+        }
+        return movieRefresher;
+    }
+
+    public synchronized ArrQueuePoller sonarrQueuePoller() {
+        if (sonarrQueuePoller == null) {
+            SonarrApiGateway sonarr = sonarrApiGateway();
+            int interval = LocalEnvironmentManager.isLocal() ? 2 : Integer.parseInt(configFileLoader.getConfig(SONARR_RETRY_INTERVAL));
+            sonarrQueuePoller = new ArrQueuePoller("Sonarr", interval, () ->
+                    ArrQueuePoller.indexByDownloadId(sonarr.getQueue().getRecords(), rcd -> rcd.getDownloadId(), rcd -> rcd.getOutputPath(), rcd -> ArrQueuePoller.parseEta(rcd.getEstimatedCompletionTime()), rcd -> rcd.getSize()));
+        }
+        return sonarrQueuePoller;
+    }
+
+    public synchronized ArrQueuePoller radarrQueuePoller() {
+        if (radarrQueuePoller == null) {
+            RadarrApiGateway radarr = radarrApiGateway();
+            int interval = LocalEnvironmentManager.isLocal() ? 2 : Integer.parseInt(configFileLoader.getConfig(RADARR_RETRY_INTERVAL));
+            radarrQueuePoller = new ArrQueuePoller("Radarr", interval, () ->
+                    ArrQueuePoller.indexByDownloadId(radarr.getQueue().getRecords(), rcd -> rcd.getDownloadId(), rcd -> rcd.getOutputPath(), rcd -> ArrQueuePoller.parseEta(rcd.getEstimatedCompletionTime()), rcd -> rcd.getSize()));
+        }
+        return radarrQueuePoller;
+    }
+
+}
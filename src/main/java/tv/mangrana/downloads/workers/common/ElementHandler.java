@@ -5,11 +5,26 @@ import tv.mangrana.config.LocalEnvironmentManager;
 import tv.mangrana.exception.IncorrectWorkingReferencesException;
 import tv.mangrana.exception.NoElementFoundException;
 import tv.mangrana.exception.TooMuchTriesException;
+import tv.mangrana.downloads.workers.common.retry.RetryPolicies;
+import tv.mangrana.downloads.workers.common.retry.RetryPolicy;
+import tv.mangrana.google.api.client.CopyContext;
+import tv.mangrana.google.api.client.DriveChildrenLister;
+import tv.mangrana.google.api.client.DriveMetadataCache;
+import tv.mangrana.google.api.client.DriveRateLimiter;
 import tv.mangrana.google.api.client.RemoteCopyService;
 import tv.mangrana.google.api.client.gateway.GoogleDriveApiGateway;
 import tv.mangrana.utils.EasyLogger;
+import com.google.api.services.drive.model.File;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.GOOGLE_RETRY_INTERVAL;
 
@@ -26,13 +41,21 @@ public abstract class ElementHandler {
     protected final ConfigFileLoader configFileLoader;
     protected final GoogleDriveApiGateway googleDriveApiGateway;
     protected final RemoteCopyService copyService;
+    protected final DriveMetadataCache metadataCache;
+    protected final DriveRateLimiter driveRateLimiter;
+    protected final DriveChildrenLister childrenLister;
+    private Map<String, String> knownDriveIds = Collections.emptyMap();
+    private BiConsumer<String, String> driveIdRecorder;
+    private Supplier<Instant> estimatedCompletion = () -> null;
 
-
-    protected ElementHandler(EasyLogger logger, ConfigFileLoader configFileLoader) throws IOException {
+    protected ElementHandler(EasyLogger logger, ConfigFileLoader configFileLoader, ClientsRegistry clients) throws IOException {
         this.logger = logger;
         this.configFileLoader = configFileLoader;
-        this.googleDriveApiGateway = new GoogleDriveApiGateway();
-        copyService = new RemoteCopyService(configFileLoader);
+        this.googleDriveApiGateway = clients.googleDriveApiGateway();
+        copyService = clients.remoteCopyService();
+        metadataCache = clients.metadataCache();
+        driveRateLimiter = clients.driveRateLimiter();
+        childrenLister = clients.driveChildrenLister();
         if (LocalEnvironmentManager.isLocal()) {
             googleWaitInterval = 10;
         } else {
@@ -48,8 +71,78 @@ public abstract class ElementHandler {
         return this;
     }
 
+    /**
+     * Drive ids resolved by a previous run of the job, and where to record the ones resolved by this run.
+     */
+    public ElementHandler trackingDriveIds(Map<String, String> knownDriveIds, BiConsumer<String, String> driveIdRecorder) {
+        this.knownDriveIds = knownDriveIds;
+        this.driveIdRecorder = driveIdRecorder;
+        return this;
+    }
+
+    /**
+     * Where to ask when the download is expected to be complete, for the ETA-aware retry policy.
+     */
+    public ElementHandler expectingCompletionAt(Supplier<Instant> estimatedCompletion) {
+        this.estimatedCompletion = estimatedCompletion;
+        return this;
+    }
+
+    protected RetryPolicy retryPolicy(String retryTitle, int intervalMinutes) {
+        return RetryPolicies.forTitle(configFileLoader, retryTitle, intervalMinutes, estimatedCompletion);
+    }
+
+    protected CopyContext tracked(CopyContext copyContext) {
+        return copyContext.trackingDriveIds(knownDriveIds, driveIdRecorder);
+    }
+
     public abstract void crashHandle () throws IncorrectWorkingReferencesException, TooMuchTriesException, IOException, NoElementFoundException;
-    public abstract void handle() throws NoElementFoundException, IncorrectWorkingReferencesException, TooMuchTriesException, IOException;
+
+    /**
+     * @return completed once the element is copied; no thread is held while it waits for the download to land
+     */
+    public abstract CompletableFuture<Void> handle();
+
+    /**
+     * What is done with the downloaded element once found, allowed to throw the checked exceptions of the copy.
+     */
+    @FunctionalInterface
+    protected interface CopyStep {
+        void copy(File downloadedElement) throws Exception;
+    }
+
+    /**
+     * @return the step as a future callback, whose checked exceptions fail the future
+     */
+    protected static Consumer<File> failingWith(CopyStep step) {
+        return downloadedElement -> {
+            try {
+                step.copy(downloadedElement);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        };
+    }
+
+    /**
+     * Crash handling copies without retries, so the element is looked up right away and the copy is already done
+     * (or failed) when handle returns; this only gives its exception back.
+     */
+    protected static void awaitHandled(CompletableFuture<Void> handled) throws IncorrectWorkingReferencesException, TooMuchTriesException, IOException, NoElementFoundException {
+        try {
+            handled.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof NoElementFoundException) throw (NoElementFoundException) cause;
+            if (cause instanceof TooMuchTriesException) throw (TooMuchTriesException) cause;
+            if (cause instanceof IncorrectWorkingReferencesException) throw (IncorrectWorkingReferencesException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw e;
+        }
+    }
 
     protected void log(String msg, Object... params) {
         logger.nLog(msg, params);
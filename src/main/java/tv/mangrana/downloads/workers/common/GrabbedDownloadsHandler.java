@@ -4,7 +4,14 @@ import tv.mangrana.config.ConfigFileLoader;
 import tv.mangrana.config.LocalEnvironmentManager;
 import tv.mangrana.exception.NoElementFoundException;
 import tv.mangrana.jobs.JobFile;
+import tv.mangrana.jobs.JobFileManager;
+import tv.mangrana.metrics.Counter;
+import tv.mangrana.metrics.Histogram;
+import tv.mangrana.metrics.MetricsRegistry;
+import tv.mangrana.downloads.workers.common.admission.CopyAdmissionController;
+import tv.mangrana.downloads.workers.common.admission.CopyPriority;
 import tv.mangrana.downloads.workers.common.jobs.JobHandler;
+import tv.mangrana.downloads.workers.common.jobs.JobStateStore;
 import tv.mangrana.downloads.workers.common.jobs.JobsResume;
 import tv.mangrana.downloads.workers.radarr.RadarGrabbedDownloadsHandler;
 import tv.mangrana.downloads.workers.sonarr.SonarGrabbedDownloadsHandler;
@@ -13,12 +20,22 @@ import tv.mangrana.utils.EasyLogger;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.*;
 import static tv.mangrana.jobs.JobFileManager.moveUncompletedJobsToRetry;
@@ -33,9 +50,24 @@ public class GrabbedDownloadsHandler implements Handler, JobOrchestrator {
 
     ConfigFileLoader configFileLoader;
 
-    JobsResume jobsState = new JobsResume();
-    Set<String> handlingJobs = new HashSet<>();
-    JobHandler jobCurrentlyInWork;
+    final JobsResume jobsState;
+    final JobStateStore jobStates;
+    final Set<String> handlingJobs = ConcurrentHashMap.newKeySet();
+    final Set<JobHandler> jobsInWork = ConcurrentHashMap.newKeySet();
+    final Map<JobFileManager.JobFileType, JobFilesScanIndex> scanIndexes = new ConcurrentHashMap<>();
+    final JobsExecutor jobsExecutor;
+    final CopyAdmissionController<JobHandler> copyAdmission;
+    final Function<Instant, Comparator<JobHandler>> copyPriority;
+    final int jobsStartStaggerSeconds;
+    final ClientsRegistry clients;
+    JobFilesWatcher jobFilesWatcher;
+    final Counter jobTransitions;
+    final Histogram jobDurations;
+    final AtomicBoolean shuttingDown = new AtomicBoolean(false);
+
+    private static final int DRAIN_CHECK_MILLIS = 500;
+    /** where the JobFileManager folders of each job type are mounted, see docker-compose.yml */
+    private static final String JOBS_FOLDERS_MOUNT = "/jobs";
 
     RadarGrabbedDownloadsHandler radarHandler = new RadarGrabbedDownloadsHandler();
     SonarGrabbedDownloadsHandler sonarrHandler = new SonarGrabbedDownloadsHandler();
@@ -43,10 +75,37 @@ public class GrabbedDownloadsHandler implements Handler, JobOrchestrator {
     public GrabbedDownloadsHandler(ConfigFileLoader configFileLoader) {
         this.logger = new EasyLogger("ORCHESTRATOR");
         this.configFileLoader = configFileLoader;
+        boolean virtualThreads = Boolean.parseBoolean(configFileLoader.getConfig(JOBS_VIRTUAL_THREADS));
+        this.jobsExecutor = new JobsExecutor(
+                configFileLoader.getIntConfig(JOBS_MAX_CONCURRENCY, 50),
+                configFileLoader.getIntConfig(JOBS_QUEUE_DEPTH, 500),
+                virtualThreads);
+        if (virtualThreads && !jobsExecutor.isVirtualThreads()) {
+            logger.nHLog("jobs_virtual_threads is enabled but this JDK has no virtual threads (21+ needed), jobs will run on platform threads");
+        }
+        this.copyAdmission = CopyAdmissionController.fromConfig(configFileLoader);
+        this.copyPriority = CopyPriority.fromConfig(configFileLoader);
+        this.jobsStartStaggerSeconds = Math.max(0, configFileLoader.getIntConfig(JOBS_START_STAGGER_SECONDS, 5));
+        this.clients = new ClientsRegistry(configFileLoader);
+        this.jobStates = JobStateStore.fromConfig(configFileLoader);
+        this.jobsState = new JobsResume(Duration.ofHours(configFileLoader.getIntConfig(JOBS_RESUME_RETENTION_HOURS, 24)));
+        MetricsRegistry metrics = MetricsRegistry.get();
+        this.jobTransitions = metrics.counter("adc_job_transitions_total", "Job state transitions by job type and state", "type", "state");
+        this.jobDurations = metrics.histogram("adc_job_duration_seconds", "Time from the job pick-up to the end of its copy",
+                Histogram.SECONDS_BUCKETS, "type", "outcome");
+        metrics.gauge("adc_jobs_handling", "Jobs picked up and not finished yet", handlingJobs::size);
+        metrics.gauge("adc_jobs_in_work", "Jobs copying right now", jobsInWork::size);
+        metrics.gauge("adc_jobs_executor_active", "Busy workers of the jobs pool", jobsExecutor::getActiveCount);
+        metrics.gauge("adc_jobs_executor_queued", "Jobs queued on the jobs pool", jobsExecutor::getQueuedCount);
+        metrics.gauge("adc_jobs_executor_rejected", "Jobs deferred because the jobs pool was saturated", jobsExecutor::getRejectedCount);
+        metrics.gauge("adc_shared_scheduler_queued", "Delayed tasks (retries, pollers) waiting on the shared scheduler", SharedScheduler::getQueuedCount);
+        metrics.gauge("adc_shared_io_queued", "Checks (lookups, listings) waiting for a shared I/O thread", SharedScheduler::getIoQueuedCount);
+        metrics.gauge("adc_refreshes_pending", "Refreshes waiting for their coalescing window", () -> clients.refreshCoalescer().getPendingCount());
     }
 
     @Override
     public void handle() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "orchestrator-shutdown"));
         if (!LocalEnvironmentManager.isLocal()) {
             moveUncompletedJobsToRetry(radarHandler.getJobFileType());
             moveUncompletedJobsToRetry(sonarrHandler.getJobFileType());
@@ -61,6 +120,7 @@ public class GrabbedDownloadsHandler implements Handler, JobOrchestrator {
         jobs.addAll(resolveJobHandlers(sonarrHandler));
         if (!jobs.isEmpty()) {
             for (JobHandler job : jobs) {
+                if (isShuttingDown()) break;
                 try {
                     job.tryToMoveIfPossible();
                 } catch (NoElementFoundException e) {
@@ -79,31 +139,53 @@ public class GrabbedDownloadsHandler implements Handler, JobOrchestrator {
     private List<JobHandler> resolveJobHandlers (AppGrabbedDownloadsHandler downloadsHandler) {
         long filesIncorporated = 0;
         long filesIgnored = 0;
+        long filesParsed = 0;
+        long filesSkipped = 0;
         List<JobHandler> jobs = new ArrayList<>();
         List<File> jobFiles = retrieveJobFiles(configFileLoader.getConfig(GRABBED_FILE_IDENTIFIER_REGEX), downloadsHandler.getJobFileType());
+        watchJobsFoldersOf(jobFiles);
+        JobFilesScanIndex scanIndex = scanIndexes.computeIfAbsent(downloadsHandler.getJobFileType(), type -> new JobFilesScanIndex());
+        scanIndex.retainOnly(jobFiles);
         if (!jobFiles.isEmpty()) {
             for (File jobFile : jobFiles) {
                 if (handlingJobs.contains(jobFile.getName())) {
                     filesIgnored++;
                     continue;
                 }
+                if (scanIndex.isKnownInvalid(jobFile)) {
+                    filesSkipped++;
+                    continue;
+                }
                 try {
                     @SuppressWarnings("rawtypes")
-                    JobFile jobFileManager = downloadsHandler.provideJobFile(jobFile);
-                    if (jobFileManager.hasNoInfo()) {
-                        throw new IncorrectWorkingReferencesException("no valid info at file");
+                    JobFile jobFileManager = scanIndex.getParsed(jobFile);
+                    if (Objects.isNull(jobFileManager)) {
+                        jobFileManager = downloadsHandler.provideJobFile(jobFile);
+                        filesParsed++;
+                        if (jobFileManager.hasNoInfo()) {
+                            throw new IncorrectWorkingReferencesException("no valid info at file");
+                        }
+                    } else {
+                        filesSkipped++;
                     }
                     JobHandler job = downloadsHandler.provideJobHandler(configFileLoader, jobFileManager, this);
+                    scanIndex.parsed(jobFile, jobFileManager);
                     jobs.add(job);
                     filesIncorporated++;
-                } catch (IOException | IncorrectWorkingReferencesException  e) {
+                } catch (IncorrectWorkingReferencesException e) {
+                    scanIndex.invalid(jobFile);
+                    log("could not get the job from file " + jobFile.getAbsolutePath());
+                } catch (IOException e) {
                     String identifier = jobFile.getAbsolutePath();
                     log("could not get the job from file " + identifier);
                 }
             }
+            if (filesIncorporated > 0 || filesParsed > 0) {
+                logger.nLogD("Resolved {2} jobs for handling loop: filesIncorporated={0}, filesIgnored={1}, filesParsed={3}, filesSkipped={4}",
+                        filesIncorporated, filesIgnored, downloadsHandler.getJobFileType().getFolderName().toUpperCase(),
+                        filesParsed, filesSkipped);
+            }
             if (filesIncorporated > 0) {
-                logger.nLogD("Resolved {2} jobs for handling loop: filesIncorporated={0}, filesIgnored={1}",
-                        filesIncorporated, filesIgnored, downloadsHandler.getJobFileType().getFolderName().toUpperCase());
                 try {
                     configFileLoader.refresh();
                 } catch (IncorrectWorkingReferencesException e) {
@@ -115,66 +197,227 @@ public class GrabbedDownloadsHandler implements Handler, JobOrchestrator {
     }
 
     private void handleRestOfJobs() {
+        startJobFilesWatcher();
         boolean keepLooping = true;
         while (keepLooping) {
             List<JobHandler> jobs = resolveJobHandlers(radarHandler);
             jobs.addAll(resolveJobHandlers(sonarrHandler));
             if (!jobs.isEmpty()) {
-                ExecutorService executor = Executors.newFixedThreadPool(jobs.size());
-                handleJobsInParallel(jobs, executor);
+                handleJobsInParallel(jobs);
             }
             jobsState.resumeJobsLogPrint(!jobs.isEmpty());
-            waitMinutes(Integer.parseInt(configFileLoader.getConfig(JOB_FILES_PICK_UP_INTERVAL)));
-            keepLooping = Boolean.parseBoolean(configFileLoader.getConfig(IMMORTAL_PROCESS));
+            if (!jobs.isEmpty()) {
+                logger.nLogD("drive metadata cache: {0}", clients.metadataCache().getStats());
+            }
+            waitForNextPickUp(Integer.parseInt(configFileLoader.getConfig(JOB_FILES_PICK_UP_INTERVAL)));
+            keepLooping = Boolean.parseBoolean(configFileLoader.getConfig(IMMORTAL_PROCESS)) && !isShuttingDown();
+        }
+        awaitJobsInFlight();
+        stopJobFilesWatcher();
+        jobsExecutor.shutdown();
+        clients.shutdown();
+    }
+
+    /**
+     * Once started, the jobs go on on the shared daemon threads, so a single pass waits for them before returning.
+     */
+    private void awaitJobsInFlight() {
+        while (!handlingJobs.isEmpty() && !isShuttingDown()) {
+            try {
+                Thread.sleep(DRAIN_CHECK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
         }
     }
 
-    private void handleJobsInParallel(List<JobHandler> jobHandlers, ExecutorService executor) {
+    /**
+     * Run by the JVM shutdown hook: stops taking jobs, lets the copies in progress finish up to a deadline and
+     * leaves the job states persisted, so the next start skips what was already copied instead of redoing it.
+     * Copies still running at the deadline keep checkpointing until the JVM halts, so the store is left open for them.
+     */
+    void shutdown() {
+        if (!shuttingDown.compareAndSet(false, true)) return;
+        int drainSeconds = configFileLoader.getIntConfig(SHUTDOWN_DRAIN_SECONDS, 120);
+        logger.nHLog("shutting down: no more jobs will be taken, waiting up to {0} seconds for {1} copies in progress",
+                drainSeconds, jobsInWork.size());
+        stopJobFilesWatcher();
+        jobsExecutor.shutdown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+        while (!jobsInWork.isEmpty() && deadline - System.nanoTime() > 0) {
+            try {
+                Thread.sleep(DRAIN_CHECK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        clients.refreshCoalescer().flush();
+        clients.shutdown();
+        if (!jobsInWork.isEmpty()) {
+            logger.nHLog("drain deadline reached, still copying {0}; the files they copy until the process stops are checkpointed and will be skipped on the next start",
+                    jobsInWork.stream().map(JobHandler::getFullTitle).collect(Collectors.toList()));
+            return;
+        }
+        logger.nLog("every copy in progress has finished");
+        try {
+            jobStates.close();
+        } catch (IOException e) {
+            logger.nHLog("could not close the job state store: {0}", e.getMessage());
+        }
+    }
+
+    /**
+     * The jobs being handled are left out of the filter, so the rewrites of their job files don't wake the loop up.
+     */
+    private void startJobFilesWatcher() {
+        try {
+            jobFilesWatcher = new JobFilesWatcher(fileName ->
+                    fileName.matches(configFileLoader.getConfig(GRABBED_FILE_IDENTIFIER_REGEX)) && !handlingJobs.contains(fileName));
+            jobFilesWatcher.start();
+            jobFilesWatcher.watchJobsFolders(Paths.get(JOBS_FOLDERS_MOUNT), radarHandler.getJobFileType(), sonarrHandler.getJobFileType());
+        } catch (IOException e) {
+            logger.nHLog("could not watch the jobs folders ({0}), new jobs will be picked up only every interval", e.getMessage());
+            jobFilesWatcher = null;
+        }
+    }
+
+    /**
+     * Also watches the folders the job files are actually read from by the {@link tv.mangrana.jobs.JobFileManager},
+     * in case they are not the ones mounted.
+     */
+    private void watchJobsFoldersOf(List<File> jobFiles) {
+        if (jobFilesWatcher == null || jobFiles.isEmpty()) return;
+        jobFilesWatcher.watch(jobFiles.stream()
+                .map(File::getAbsoluteFile)
+                .map(File::getParentFile)
+                .filter(Objects::nonNull)
+                .map(File::toPath)
+                .collect(Collectors.toSet()));
+    }
+
+    private void waitForNextPickUp(int pickUpIntervalMinutes) {
+        if (jobFilesWatcher == null) {
+            waitMinutes(pickUpIntervalMinutes);
+            return;
+        }
+        try {
+            if (jobFilesWatcher.awaitJobFiles(pickUpIntervalMinutes, TimeUnit.MINUTES)) {
+                logger.nLogD("woken up by a new job file");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stopJobFilesWatcher() {
+        if (jobFilesWatcher == null) return;
+        try {
+            jobFilesWatcher.close();
+        } catch (IOException e) {
+            logger.nLog("could not close the jobs folders watcher: {0}", e.getMessage());
+        }
+    }
+
+    private void handleJobsInParallel(List<JobHandler> jobHandlers) {
+        int deferred = 0;
+        jobHandlers.sort(copyPriority.apply(Instant.now()));
         for (JobHandler jobHandler : jobHandlers) {
-            executor.execute(jobHandler);
-            handlingJobs.add(getFileNameFromJob(jobHandler));
-            waitSeconds(5);
+            if (deferred > 0 || isShuttingDown()) {
+                deferred++;
+                continue;
+            }
+            handlingJobs.add(jobHandler.getJobKey());
+            if (!jobsExecutor.submit(jobHandler)) {
+                handlingJobs.remove(jobHandler.getJobKey());
+                deferred++;
+                continue;
+            }
+            if (jobsStartStaggerSeconds > 0) waitSeconds(jobsStartStaggerSeconds);
+        }
+        if (deferred > 0 && !isShuttingDown()) {
+            logger.nHLog("jobs pool is saturated, {0} jobs deferred to the next pick-up loop ({1})",
+                    deferred, jobsExecutor.getStats());
         }
     }
 
+    public ClientsRegistry getClients() {
+        return clients;
+    }
+
+    public JobStateStore getJobStates() {
+        return jobStates;
+    }
+
     public boolean isWorkingWithAJob() {
-        return jobCurrentlyInWork!=null;
+        return !jobsInWork.isEmpty();
     }
 
     public boolean isJobWorking(JobHandler job) {
-        return job.equals(jobCurrentlyInWork);
+        return jobsInWork.contains(job);
+    }
+
+    public boolean isShuttingDown() {
+        return shuttingDown.get();
     }
 
     public void jobInitiated(JobHandler job) {
-        jobsState.put(job.getJobType(), job.getJobTitle(), "initiated");
+        jobStateChanged(job, "initiated");
+        jobStates.recordState(job.getJobKey(), "initiated");
     }
 
     public void jobHasFileName(JobHandler job) {
-        jobsState.put(job.getJobType(), job.getJobTitle(), "has filename");
+        jobStateChanged(job, "has filename");
+        jobStates.recordState(job.getJobKey(), "has filename");
+    }
+
+    public CompletableFuture<Void> copyTurn(JobHandler job) {
+        return copyAdmission.acquire(job).thenRun(() -> {
+            if (isShuttingDown()) {
+                copyAdmission.release(job);
+                throw new CompletionException(new InterruptedException("shutting down, the copy is left for the next start"));
+            }
+        });
     }
 
     public void jobWorking(JobHandler job) {
         logger.nLog("WORKING WITH "+job.getFullTitle());
-        jobsState.put(job.getJobType(), job.getJobTitle(), "working");
-        jobCurrentlyInWork=job;
+        jobStateChanged(job, "working");
+        jobStates.recordState(job.getJobKey(), "working");
+        jobsInWork.add(job);
     }
 
     public void jobFinished(JobHandler job) {
         logger.nLog("NOT WORKING ANYMORE WITH "+job.getFullTitle());
-        jobsState.put(job.getJobType(), job.getJobTitle(), "finished");
-        handlingJobs.remove(getFileNameFromJob(job));
-        jobCurrentlyInWork=null;
+        jobStateChanged(job, "finished");
+        jobDurations.observeNanosSince(job.getPickedUpAtNanos(), job.getJobType().name(), "finished");
+        jobStates.forget(job.getJobKey());
+        forgetScannedJobFile(job);
+        handlingJobs.remove(job.getJobKey());
+        jobsInWork.remove(job);
+        copyAdmission.release(job);
     }
 
     public void jobError(JobHandler job) {
         logger.nLog("NOT WORKING ANYMORE WITH "+job.getFullTitle());
-        jobsState.put(job.getJobType(), job.getJobTitle(), "error");
-        handlingJobs.remove(getFileNameFromJob(job));
-        jobCurrentlyInWork=null;
+        jobStateChanged(job, "error");
+        jobDurations.observeNanosSince(job.getPickedUpAtNanos(), job.getJobType().name(), "error");
+        jobStates.recordState(job.getJobKey(), "error");
+        forgetScannedJobFile(job);
+        handlingJobs.remove(job.getJobKey());
+        jobsInWork.remove(job);
+        copyAdmission.release(job);
+    }
+
+    private void jobStateChanged(JobHandler job, String state) {
+        jobsState.put(job.getJobType(), job.getJobTitle(), state);
+        jobTransitions.inc(job.getJobType().name(), state);
     }
 
-    private String getFileNameFromJob(JobHandler job) {
-        return job.getJobFile().getFile().getName();
+    private void forgetScannedJobFile(JobHandler job) {
+        JobFilesScanIndex scanIndex = scanIndexes.get(job.getJobType());
+        if (Objects.nonNull(scanIndex)) scanIndex.forget(job.getJobKey());
     }
 
 }
@@ -0,0 +1,83 @@
+package tv.mangrana.downloads.workers.common;
+
+import tv.mangrana.jobs.JobFile;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers the outcome of parsing each job file, keyed by its name and checked against its mtime and size,
+ * so a pick-up loop only parses the job files that are new or were changed since the previous one.
+ */
+@SuppressWarnings("rawtypes")
+public class JobFilesScanIndex {
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private static class Entry {
+        final String path;
+        final long lastModified;
+        final long size;
+        final JobFile jobFile;
+        Entry(File file, JobFile jobFile) {
+            this.path = file.getAbsolutePath();
+            this.lastModified = file.lastModified();
+            this.size = file.length();
+            this.jobFile = jobFile;
+        }
+        boolean isUnchanged(File file) {
+            return path.equals(file.getAbsolutePath())
+                    && lastModified == file.lastModified()
+                    && size == file.length();
+        }
+    }
+
+    /**
+     * @return true if the file was already found invalid and hasn't changed since then
+     */
+    public synchronized boolean isKnownInvalid(File file) {
+        Entry entry = entries.get(file.getName());
+        return Objects.nonNull(entry) && Objects.isNull(entry.jobFile) && entry.isUnchanged(file);
+    }
+
+    /**
+     * @return the job file parsed in a previous loop if the file hasn't changed since then, otherwise null
+     */
+    public synchronized JobFile getParsed(File file) {
+        Entry entry = entries.get(file.getName());
+        return Objects.nonNull(entry) && entry.isUnchanged(file) ? entry.jobFile : null;
+    }
+
+    public synchronized void parsed(File file, JobFile jobFile) {
+        entries.put(file.getName(), new Entry(file, jobFile));
+    }
+
+    public synchronized void invalid(File file) {
+        entries.put(file.getName(), new Entry(file, null));
+    }
+
+    /**
+     * Once a job has been handled its file is moved or rewritten, so it must be parsed again if it shows up later.
+     */
+    public synchronized void forget(String jobFileName) {
+        entries.remove(jobFileName);
+    }
+
+    /**
+     * Drops the entries of the files that are no longer in the jobs folder, so the index doesn't outgrow it.
+     */
+    public synchronized void retainOnly(Collection<File> listedFiles) {
+        Set<String> listedNames = listedFiles.stream().map(File::getName).collect(Collectors.toSet());
+        entries.keySet().retainAll(listedNames);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+}
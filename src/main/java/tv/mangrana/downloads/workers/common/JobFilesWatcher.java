@@ -0,0 +1,141 @@
+package tv.mangrana.downloads.workers.common;
+
+import tv.mangrana.jobs.JobFileManager;
+import tv.mangrana.utils.EasyLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Wakes up the orchestrator as soon as a job file is written in one of the jobs folders,
+ * instead of letting it sleep the whole pick-up interval. The jobs folders are registered at start-up, even when
+ * they are empty, plus the ones the job files are found to be read from; the filter lets the caller ignore the files it writes itself.
+ */
+public class JobFilesWatcher implements Closeable {
+
+    private static final long SETTLE_MILLIS = 500;
+
+    private final EasyLogger logger;
+    private final WatchService watchService;
+    private final Predicate<String> jobFileNameFilter;
+    private final Semaphore intakeSignal = new Semaphore(0);
+    private final Set<Path> watchedFolders = ConcurrentHashMap.newKeySet();
+
+    public JobFilesWatcher(Predicate<String> jobFileNameFilter) throws IOException {
+        this.logger = new EasyLogger("JOBS_WATCHER");
+        this.jobFileNameFilter = jobFileNameFilter;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Starts watching the folders not watched yet.
+     */
+    public void watch(Collection<Path> jobsFolders) {
+        for (Path jobsFolder : jobsFolders) {
+            Path folder = jobsFolder.toAbsolutePath().normalize();
+            if (!watchedFolders.add(folder)) continue;
+            try {
+                folder.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+                logger.nLog("watching the jobs folder {0} for new job files", folder);
+            } catch (IOException | ClosedWatchServiceException e) {
+                watchedFolders.remove(folder);
+                logger.nHLog("could not watch the jobs folder {0} ({1}), its jobs will be picked up only every interval", folder, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Watches the jobs folder of each type under the given root, and its subfolders, whether they have job files yet or not.
+     */
+    public void watchJobsFolders(Path jobsRoot, JobFileManager.JobFileType... jobTypes) {
+        List<Path> jobsFolders = new ArrayList<>();
+        for (JobFileManager.JobFileType jobType : jobTypes) {
+            Path jobsFolder = jobsRoot.resolve(jobType.getFolderName());
+            if (!Files.isDirectory(jobsFolder)) {
+                logger.nHLog("the jobs folder {0} does not exist, it will be watched once a job file is read from it", jobsFolder);
+                continue;
+            }
+            jobsFolders.add(jobsFolder);
+            try (Stream<Path> children = Files.list(jobsFolder)) {
+                children.filter(Files::isDirectory).forEach(jobsFolders::add);
+            } catch (IOException e) {
+                logger.nHLog("could not list the subfolders of {0} ({1})", jobsFolder, e.getMessage());
+            }
+        }
+        watch(jobsFolders);
+    }
+
+    public Set<Path> getWatchedFolders() {
+        return watchedFolders;
+    }
+
+    public void start() {
+        Thread watcherThread = new Thread(this::watch, "job-files-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Waits until a new job file is noticed or the timeout elapses (the periodic full scan fallback).
+     * @return true if woken by a job file event
+     */
+    public boolean awaitJobFiles(long timeout, TimeUnit unit) throws InterruptedException {
+        boolean signaled = intakeSignal.tryAcquire(timeout, unit);
+        if (signaled) {
+            Thread.sleep(SETTLE_MILLIS);
+            intakeSignal.drainPermits();
+        }
+        return signaled;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean jobFileEvent = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        jobFileEvent = true;
+                    } else if (event.context() instanceof Path
+                            && jobFileNameFilter.test(((Path) event.context()).getFileName().toString())) {
+                        jobFileEvent = true;
+                    }
+                }
+                key.reset();
+                if (jobFileEvent) {
+                    intakeSignal.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            logger.nLog("jobs folders watcher closed");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+}
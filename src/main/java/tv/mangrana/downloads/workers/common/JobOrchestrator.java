@@ -1,17 +1,31 @@
 package tv.mangrana.downloads.workers.common;
 
 import tv.mangrana.downloads.workers.common.jobs.JobHandler;
+import tv.mangrana.downloads.workers.common.jobs.JobStateStore;
+
+import java.util.concurrent.CompletableFuture;
 
 public interface JobOrchestrator {
 
+    ClientsRegistry getClients();
+
+    JobStateStore getJobStates();
+
     boolean isWorkingWithAJob();
 
     boolean isJobWorking(JobHandler job);
 
+    boolean isShuttingDown();
+
     void jobInitiated(JobHandler job);
 
     void jobHasFileName(JobHandler job);
 
+    /**
+     * @return completed when the job may start copying
+     */
+    CompletableFuture<Void> copyTurn(JobHandler job);
+
     void jobWorking(JobHandler job);
 
     void jobFinished(JobHandler job);
@@ -0,0 +1,174 @@
+package tv.mangrana.downloads.workers.common;
+
+import tv.mangrana.downloads.workers.common.jobs.JobHandler;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static tv.mangrana.utils.Output.msg;
+
+/**
+ * Long-lived bounded pool where the orchestrator submits every job handler.
+ * When all workers are busy and the queue is full, the job is rejected so the caller can leave it for the next pick-up loop.
+ * On a JDK with virtual threads (21+) each job can get its own virtual thread instead, since those are not meant
+ * to be pooled; the max concurrency then caps the jobs in flight with a semaphore, and nothing is queued.
+ */
+public class JobsExecutor {
+
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor workersPool;
+    private final Semaphore virtualThreadPermits;
+    private final int maxConcurrency;
+    private final int queueDepth;
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final boolean virtualThreads;
+
+    private static final String WORKER_NAME_PREFIX = "job-worker-";
+
+    public JobsExecutor(int maxConcurrency, int queueDepth) {
+        this(maxConcurrency, queueDepth, false);
+    }
+
+    /**
+     * @param virtualThreads ignored when the running JDK has no virtual threads, see {@link #isVirtualThreads()}
+     */
+    public JobsExecutor(int maxConcurrency, int queueDepth, boolean virtualThreads) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.queueDepth = Math.max(1, queueDepth);
+        ThreadFactory virtualThreadFactory = virtualThreads ? virtualThreadFactory(WORKER_NAME_PREFIX) : null;
+        ExecutorService threadPerTaskExecutor = Objects.isNull(virtualThreadFactory) ? null : threadPerTaskExecutor(virtualThreadFactory);
+        this.virtualThreads = Objects.nonNull(threadPerTaskExecutor);
+        if (this.virtualThreads) {
+            workersPool = null;
+            virtualThreadPermits = new Semaphore(this.maxConcurrency);
+            executor = threadPerTaskExecutor;
+        } else {
+            workersPool = new ThreadPoolExecutor(
+                    this.maxConcurrency, this.maxConcurrency,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(this.queueDepth),
+                    new JobThreadFactory(),
+                    new ThreadPoolExecutor.AbortPolicy());
+            virtualThreadPermits = null;
+            executor = workersPool;
+        }
+    }
+
+    /**
+     * Looked up by reflection so the project still builds and runs on Java 8.
+     * @return a factory of virtual threads, or null when the running JDK has none
+     */
+    static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Looked up by reflection as well, it's Java 21+.
+     * @return an executor starting a new thread of the factory per task, or null when the running JDK has none
+     */
+    static ExecutorService threadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public boolean submit(JobHandler job) {
+        if (virtualThreads) {
+            return submitOnVirtualThread(job);
+        }
+        try {
+            executor.execute(job);
+            submittedCount.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+    }
+
+    private boolean submitOnVirtualThread(JobHandler job) {
+        if (!virtualThreadPermits.tryAcquire()) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    job.run();
+                } finally {
+                    virtualThreadPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            virtualThreadPermits.release();
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        submittedCount.incrementAndGet();
+        return true;
+    }
+
+    public int getActiveCount() {
+        return virtualThreads
+                ? maxConcurrency - virtualThreadPermits.availablePermits()
+                : workersPool.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return virtualThreads ? 0 : workersPool.getQueue().size();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public String getStats() {
+        if (virtualThreads) {
+            return msg("active={0}/{1}, submitted={2}, rejected={3}, virtual=true",
+                    getActiveCount(), maxConcurrency, getSubmittedCount(), getRejectedCount());
+        }
+        return msg("active={0}/{1}, queued={2}/{3}, submitted={4}, rejected={5}, virtual=false",
+                getActiveCount(), maxConcurrency, getQueuedCount(), queueDepth, getSubmittedCount(), getRejectedCount());
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class JobThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger(1);
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, WORKER_NAME_PREFIX + threadCount.getAndIncrement());
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package tv.mangrana.downloads.workers.common;
+
+import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.metrics.Counter;
+import tv.mangrana.metrics.MetricsRegistry;
+import tv.mangrana.utils.Output;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.REFRESH_COALESCE_SECONDS;
+
+/**
+ * Debounces the refreshes asked to the Arr apps and Plex after the copies: the first request for a target
+ * (a serie id, a library path...) is run once the window elapses, and every request for the same target
+ * arriving meanwhile is merged into it, so ten episodes landing together cost a single refresh.
+ */
+public class RefreshCoalescer {
+
+    private static final int DEFAULT_WINDOW_SECONDS = 60;
+    private static final Counter REFRESHES = MetricsRegistry.get().counter("adc_refreshes_total",
+            "Refreshes requested after the copies, by target and whether they were run or merged into a pending one", "target", "outcome");
+
+    private final long windowMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Pending> pendingByKey = new ConcurrentHashMap<>();
+
+    /**
+     * @param windowMillis zero or less runs every refresh right away on the caller thread
+     */
+    public RefreshCoalescer(long windowMillis, ScheduledExecutorService scheduler) {
+        this.windowMillis = windowMillis;
+        this.scheduler = scheduler;
+    }
+
+    public static RefreshCoalescer fromConfig(ConfigFileLoader configFileLoader) {
+        return new RefreshCoalescer(
+                TimeUnit.SECONDS.toMillis(configFileLoader.getIntConfig(REFRESH_COALESCE_SECONDS, DEFAULT_WINDOW_SECONDS)),
+                SharedScheduler.get());
+    }
+
+    /**
+     * Asks for the refresh of the given target. If one is already pending for it, the latest action replaces it.
+     */
+    public void request(String target, String id, Runnable refresh) {
+        if (windowMillis <= 0) {
+            run(target, refresh);
+            return;
+        }
+        String key = target + ":" + id;
+        pendingByKey.compute(key, (k, pending) -> {
+            if (pending != null) {
+                pending.refresh = refresh;
+                REFRESHES.inc(target, "coalesced");
+                return pending;
+            }
+            Pending scheduled = new Pending(target, refresh);
+            scheduled.future = scheduler.schedule(() -> runPending(k, scheduled), windowMillis, TimeUnit.MILLISECONDS);
+            return scheduled;
+        });
+    }
+
+    /**
+     * Runs now every pending refresh, e.g. before the process stops.
+     */
+    public void flush() {
+        List<String> keys = new ArrayList<>(pendingByKey.keySet());
+        for (String key : keys) {
+            Pending pending = pendingByKey.get(key);
+            if (pending == null) continue;
+            if (pending.future != null) pending.future.cancel(false);
+            runPending(key, pending);
+        }
+    }
+
+    public int getPendingCount() {
+        return pendingByKey.size();
+    }
+
+    private void runPending(String key, Pending pending) {
+        if (pendingByKey.remove(key, pending)) {
+            run(pending.target, pending.refresh);
+        }
+    }
+
+    private void run(String target, Runnable refresh) {
+        REFRESHES.inc(target, "run");
+        try {
+            refresh.run();
+        } catch (Exception e) {
+            Output.log("the {0} refresh failed because of unexpected error {1}", target, e.getMessage());
+        }
+    }
+
+    private static class Pending {
+        private final String target;
+        private volatile Runnable refresh;
+        private volatile ScheduledFuture<?> future;
+
+        private Pending(String target, Runnable refresh) {
+            this.target = target;
+            this.refresh = refresh;
+        }
+    }
+
+}
@@ -1,104 +1,229 @@
 package tv.mangrana.downloads.workers.common;
 
+import tv.mangrana.downloads.workers.common.retry.FixedDelayPolicy;
+import tv.mangrana.downloads.workers.common.retry.RetryPolicy;
 import tv.mangrana.exception.TooMuchTriesException;
+import tv.mangrana.metrics.Counter;
+import tv.mangrana.metrics.MetricsRegistry;
 
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static tv.mangrana.utils.Output.getCurrentTime;
 import static tv.mangrana.utils.Output.msg;
-import static tv.mangrana.utils.Waiter.waitMinutes;
-import static tv.mangrana.utils.Waiter.waitSeconds;
 
 public class RetryEngine<D> {
 
     private final String title;
-    private final int minutesToWait;
+    private final RetryPolicy retryPolicy;
     private final ChildrenRequirements<D> childrenRequirements;
     private final Consumer<String> logger;
+    private final ScheduledExecutorService scheduler;
+    private final Executor ioExecutor;
     private static final int TOO_MUCH_RETRIES_CHILDREN_THRESHOLD = 10;
+    private static final int CHILDREN_SETTLE_SECONDS = 50;
+    private static final int CHILDREN_CONSTRAINT_RECHECK_SECONDS = 10;
     public static final int TOO_MUCH_RETRIES_INFINITE_THRESHOLD = 0;
+    private static final Counter ATTEMPTS = MetricsRegistry.get().counter("adc_retry_attempts_total",
+            "RetryEngine attempts by title", "title");
+    private static final Counter EXHAUSTED = MetricsRegistry.get().counter("adc_retry_exhausted_total",
+            "RetryEngine tries given up for too many attempts, by title", "title");
 
     public static class ChildrenRequirements<D> {
         final int children;
-        final Function<D, List<D>> retriever;
+        final Function<D, Iterator<D>> childrenIterator;
         final Function<D, Boolean> constraint;
 
         public ChildrenRequirements(int childrenMustHave, Function<D, List<D>> childrenRetriever, Function<D, Boolean> constraint){
+            this(Objects.isNull(childrenRetriever) ? null : parent -> childrenRetriever.apply(parent).iterator(),
+                    constraint, childrenMustHave);
+        }
+
+        private ChildrenRequirements(Function<D, Iterator<D>> childrenIterator, Function<D, Boolean> constraint, int childrenMustHave){
             this.children = childrenMustHave;
-            this.retriever = childrenRetriever;
+            this.childrenIterator = childrenIterator;
             this.constraint = constraint;
         }
+
+        /**
+         * The children are pulled lazily, so each check stops reading them as soon as it is decided.
+         */
+        public static <D> ChildrenRequirements<D> streaming(int childrenMustHave, Function<D, Iterator<D>> childrenIterator, Function<D, Boolean> constraint){
+            return new ChildrenRequirements<>(childrenIterator, constraint, childrenMustHave);
+        }
+    }
+
+    private static class ChildrenCheck {
+        final int count;
+        final boolean constraintViolated;
+        ChildrenCheck(int count, boolean constraintViolated) {
+            this.count = count;
+            this.constraintViolated = constraintViolated;
+        }
     }
 
     public RetryEngine(String title, int minutesToWait, Consumer<String> logger) {
         this(title, minutesToWait, new ChildrenRequirements<>(0, null, null), logger);
     }
     public RetryEngine(String title, int minutesToWait, ChildrenRequirements<D> childrenRequirements, Consumer<String> logger) {
+        this(title, minutesToWait, childrenRequirements, logger, SharedScheduler.get());
+    }
+    public RetryEngine(String title, int minutesToWait, ChildrenRequirements<D> childrenRequirements, Consumer<String> logger, ScheduledExecutorService scheduler) {
+        this(title, FixedDelayPolicy.everyMinutes(minutesToWait), childrenRequirements, logger, scheduler);
+    }
+    public RetryEngine(String title, RetryPolicy retryPolicy, Consumer<String> logger) {
+        this(title, retryPolicy, new ChildrenRequirements<>(0, null, null), logger, SharedScheduler.get());
+    }
+    public RetryEngine(String title, RetryPolicy retryPolicy, ChildrenRequirements<D> childrenRequirements, Consumer<String> logger) {
+        this(title, retryPolicy, childrenRequirements, logger, SharedScheduler.get());
+    }
+    public RetryEngine(String title, RetryPolicy retryPolicy, ChildrenRequirements<D> childrenRequirements, Consumer<String> logger, ScheduledExecutorService scheduler) {
+        this(title, retryPolicy, childrenRequirements, logger, scheduler, SharedScheduler.io());
+    }
+    public RetryEngine(String title, RetryPolicy retryPolicy, ChildrenRequirements<D> childrenRequirements, Consumer<String> logger,
+                       ScheduledExecutorService scheduler, Executor ioExecutor) {
         this.title = title;
-        this.minutesToWait = minutesToWait;
+        this.retryPolicy = retryPolicy;
         this.childrenRequirements = childrenRequirements;
         this.logger = logger;
+        this.scheduler = scheduler;
+        this.ioExecutor = ioExecutor;
+    }
+
+    /**
+     * Blocking form of {@link #tryUntilGotDesiredAsync}, for callers that have a thread to spare.
+     */
+    public D tryUntilGotDesired(Supplier<D> tryToGet, final int tooMuchTriesThreshold) throws TooMuchTriesException, InterruptedException {
+        CompletableFuture<D> desiredFuture = tryUntilGotDesiredAsync(tryToGet, tooMuchTriesThreshold);
+        try {
+            return desiredFuture.get();
+        } catch (InterruptedException e) {
+            desiredFuture.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TooMuchTriesException) throw (TooMuchTriesException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new CompletionException(e.getCause());
+        }
     }
 
-    public D tryUntilGotDesired(Supplier<D> tryToGet, final int tooMuchTriesThreshold) throws TooMuchTriesException {
-        AtomicInteger loopCount = new AtomicInteger(1);
-        D desired = null;
-        boolean waitForChildren = childrenRequirements.children > 0;
-        while (Objects.isNull(desired)) {
-            desired = tryToGet.get();
+    /**
+     * The attempts run on the I/O executor and are timed by the scheduler, so no thread is held between them.
+     * @return completed with the desired element, or failed with a TooMuchTriesException once the threshold is passed;
+     * cancelling it stops the attempts
+     */
+    public CompletableFuture<D> tryUntilGotDesiredAsync(Supplier<D> tryToGet, final int tooMuchTriesThreshold) {
+        CompletableFuture<D> desiredFuture = new CompletableFuture<>();
+        ioExecutor.execute(() -> desiredAttempt(tryToGet, tooMuchTriesThreshold, 1, desiredFuture));
+        return desiredFuture;
+    }
+
+    private void later(Runnable attempt, long delay, TimeUnit unit) {
+        scheduler.schedule(() -> ioExecutor.execute(attempt), delay, unit);
+    }
+
+    private void desiredAttempt(Supplier<D> tryToGet, final int tooMuchTriesThreshold, int loopCount, CompletableFuture<D> desiredFuture) {
+        if (desiredFuture.isDone()) return;
+        ATTEMPTS.inc(title);
+        try {
+            D desired = tryToGet.get();
             if (Objects.isNull(desired)) {
-                waitLoopBehaviour(loopCount,
-                        msg("The element was not found yet and will retry every {0} minutes - {1}", minutesToWait, getCurrentTime()),
+                scheduleNextAttempt(loopCount,
+                        msg("The element was not found yet and will retry {0} - {1}", retryPolicy.describe(), getCurrentTime()),
                         "Too much tries when retrieving desired element",
-                        tooMuchTriesThreshold
+                        tooMuchTriesThreshold,
+                        desiredFuture,
+                        () -> desiredAttempt(tryToGet, tooMuchTriesThreshold, loopCount + 1, desiredFuture)
                 );
-            } else if (waitForChildren) {
-                childrenCheckingLoop(desired);
+            } else if (childrenRequirements.children > 0) {
+                childrenAttempt(desired, 1, childrenRequirements.constraint == null, desiredFuture);
+            } else {
+                satisfied(desired, desiredFuture);
             }
+        } catch (Exception e) {
+            desiredFuture.completeExceptionally(e);
         }
-        log("the try was satisfied and will return the desired element/s");
-        return desired;
-    }
-
-    private void childrenCheckingLoop(D got) throws TooMuchTriesException {
-        AtomicInteger loopCount = new AtomicInteger(1);
-        boolean waitForChildren=true;
-        boolean childrenConstraintSatisfied = childrenRequirements.constraint == null;
-        while (waitForChildren) {
-            List<D> children = childrenRequirements.retriever.apply(got);
-            if (children.size() < childrenRequirements.children) {
-                waitLoopBehaviour(loopCount,
-                        msg("Not enough children yet ({2} vs {3}) and will retry every {0} minutes - {1}",
-                                minutesToWait, getCurrentTime(), children.size(), childrenRequirements.children),
+    }
+
+    private void childrenAttempt(D got, int loopCount, boolean childrenConstraintSatisfied, CompletableFuture<D> desiredFuture) {
+        if (desiredFuture.isDone()) return;
+        ATTEMPTS.inc(title);
+        try {
+            ChildrenCheck check = checkChildren(got, !childrenConstraintSatisfied);
+            if (check.count < childrenRequirements.children) {
+                scheduleNextAttempt(loopCount,
+                        msg("Not enough children yet ({2} vs {3}) and will retry {0} - {1}",
+                                retryPolicy.describe(), getCurrentTime(), check.count, childrenRequirements.children),
                         msg("Too much tries when retrieving children from {0} while current is {1} and expected {2}",
-                                got.toString(), children.size(), childrenRequirements.children),
-                        TOO_MUCH_RETRIES_CHILDREN_THRESHOLD
+                                got.toString(), check.count, childrenRequirements.children),
+                        TOO_MUCH_RETRIES_CHILDREN_THRESHOLD,
+                        desiredFuture,
+                        () -> childrenAttempt(got, loopCount + 1, childrenConstraintSatisfied, desiredFuture)
                 );
+            } else if (check.constraintViolated) {
+                later(() -> childrenAttempt(got, loopCount, false, desiredFuture),
+                        CHILDREN_CONSTRAINT_RECHECK_SECONDS, TimeUnit.SECONDS);
             } else {
-                if (!childrenConstraintSatisfied) {
-                    childrenConstraintSatisfied = children.stream().allMatch(childrenRequirements.constraint::apply);
-                }
-                else {
-                    waitForChildren = false;
-                    waitSeconds(50);
-                }
+                later(() -> satisfied(got, desiredFuture), CHILDREN_SETTLE_SECONDS, TimeUnit.SECONDS);
             }
+        } catch (UncheckedIOException e) {
+            scheduleNextAttempt(loopCount,
+                    msg("Could not list the children ({2}) and will retry {0} - {1}", retryPolicy.describe(), getCurrentTime(), e.getMessage()),
+                    msg("Too much tries when retrieving children from {0}: {1}", got.toString(), e.getMessage()),
+                    TOO_MUCH_RETRIES_CHILDREN_THRESHOLD,
+                    desiredFuture,
+                    () -> childrenAttempt(got, loopCount + 1, childrenConstraintSatisfied, desiredFuture)
+            );
+        } catch (Exception e) {
+            desiredFuture.completeExceptionally(e);
         }
     }
 
-    private void waitLoopBehaviour(AtomicInteger loopCount, String noticeMessage, String overTriesMessage, final int tooMuchTriesThreshold) throws TooMuchTriesException {
+    /**
+     * Counts the children up to the required amount and, when asked, looks for one breaking the constraint;
+     * it stops reading as soon as both are decided.
+     */
+    private ChildrenCheck checkChildren(D parent, boolean checkConstraint) {
+        Iterator<D> children = childrenRequirements.childrenIterator.apply(parent);
+        int count = 0;
+        boolean constraintViolated = false;
+        while (children.hasNext()) {
+            D child = children.next();
+            count++;
+            if (checkConstraint && !constraintViolated && !childrenRequirements.constraint.apply(child)) {
+                constraintViolated = true;
+            }
+            if (count >= childrenRequirements.children && (constraintViolated || !checkConstraint)) break;
+        }
+        return new ChildrenCheck(count, constraintViolated);
+    }
+
+    private void scheduleNextAttempt(int loopCount, String noticeMessage, String overTriesMessage, final int tooMuchTriesThreshold,
+                                     CompletableFuture<D> desiredFuture, Runnable nextAttempt) {
         if (tooMuchTriesThreshold != TOO_MUCH_RETRIES_INFINITE_THRESHOLD
-                && loopCount.get() > tooMuchTriesThreshold) {
-            throw new TooMuchTriesException(overTriesMessage);
+                && loopCount > tooMuchTriesThreshold) {
+            EXHAUSTED.inc(title);
+            desiredFuture.completeExceptionally(new TooMuchTriesException(overTriesMessage));
+            return;
         }
-        if (loopCount.get()==1) log(noticeMessage);
-        loopCount.incrementAndGet();
-        waitMinutes(minutesToWait);
+        if (loopCount==1) log(noticeMessage);
+        later(nextAttempt, retryPolicy.delayMillis(loopCount), TimeUnit.MILLISECONDS);
+    }
+
+    private void satisfied(D desired, CompletableFuture<D> desiredFuture) {
+        log("the try was satisfied and will return the desired element/s");
+        desiredFuture.complete(desired);
     }
 
     private void log (String msg) {
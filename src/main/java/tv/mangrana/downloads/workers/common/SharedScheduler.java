@@ -0,0 +1,90 @@
+package tv.mangrana.downloads.workers.common;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide scheduler for delayed work (retries, pollers...), so that waiting does not pin a thread per job.
+ * The scheduler only keeps the time: blocking checks (Drive lookups, listings, rate limiter waits) are handed
+ * to the {@link #io()} executor, so they can't stall the pollers sharing the few scheduler threads.
+ */
+public class SharedScheduler {
+
+    private static final int SCHEDULER_THREADS = 4;
+    private static final int IO_THREADS = 16;
+    private static final ScheduledExecutorService INSTANCE = create();
+    private static final ExecutorService IO = createIo();
+
+    private SharedScheduler() {}
+
+    public static ScheduledExecutorService get() {
+        return INSTANCE;
+    }
+
+    public static ExecutorService io() {
+        return IO;
+    }
+
+    public static int getQueuedCount() {
+        return ((ThreadPoolExecutor) INSTANCE).getQueue().size();
+    }
+
+    public static int getIoQueuedCount() {
+        return ((ThreadPoolExecutor) IO).getQueue().size();
+    }
+
+    /**
+     * Java 8 has no {@code CompletableFuture.orTimeout}, so this is the same on the shared scheduler.
+     * @return a future completed like the given one, or failed with a TimeoutException if it isn't done in time;
+     * the given future is left as is
+     */
+    public static <T> CompletableFuture<T> within(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        CompletableFuture<T> bounded = new CompletableFuture<>();
+        ScheduledFuture<?> timer = INSTANCE.schedule(() -> bounded.completeExceptionally(new TimeoutException()), timeout, unit);
+        future.whenComplete((result, failure) -> {
+            timer.cancel(false);
+            if (failure != null) {
+                bounded.completeExceptionally(failure);
+            } else {
+                bounded.complete(result);
+            }
+        });
+        return bounded;
+    }
+
+    private static ScheduledExecutorService create() {
+        AtomicInteger threadCount = new AtomicInteger(1);
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "shared-scheduler-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * A few threads shared by every waiting job: the checks queue up when they are all busy instead of adding threads.
+     * Nothing run here may wait for other work of this same executor.
+     */
+    private static ExecutorService createIo() {
+        AtomicInteger threadCount = new AtomicInteger(1);
+        ThreadPoolExecutor io = new ThreadPoolExecutor(IO_THREADS, IO_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "shared-io-" + threadCount.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        io.allowCoreThreadTimeOut(true);
+        return io;
+    }
+
+}
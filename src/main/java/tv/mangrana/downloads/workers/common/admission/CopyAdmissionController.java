@@ -0,0 +1,62 @@
+package tv.mangrana.downloads.workers.common.admission;
+
+import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.downloads.workers.common.jobs.JobHandler;
+import tv.mangrana.jobs.JobFileManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.*;
+
+/**
+ * Decides when a job that already knows its element name is allowed to start copying.
+ */
+public interface CopyAdmissionController<J> {
+
+    enum AdmissionMode {
+        /** only one copy in the whole process at a time (the historical behaviour) */
+        SINGLE,
+        /** permits are shared by jobs of the same type (movies / series) */
+        PER_JOB_TYPE,
+        /** permits are shared by jobs whose destination is the same team drive */
+        PER_TEAM_DRIVE
+    }
+
+    /**
+     * @return completed when the job may start copying, without holding a thread meanwhile; cancelling it gives the turn up
+     */
+    CompletableFuture<Void> acquire(J job);
+
+    void release(J job);
+
+    static CopyAdmissionController<JobHandler> fromConfig(ConfigFileLoader configFileLoader) {
+        AdmissionMode mode = resolveMode(configFileLoader.getConfig(COPY_ADMISSION_MODE));
+        int permits = configFileLoader.getIntConfig(COPY_PERMITS_PER_DESTINATION, 1);
+        Function<JobHandler, String> keyResolver;
+        switch (mode) {
+            case PER_JOB_TYPE:
+                keyResolver = job -> String.valueOf(job.getJobType());
+                break;
+            case PER_TEAM_DRIVE:
+                keyResolver = job -> JobFileManager.JobFileType.RADARR_JOBS.equals(job.getJobType())
+                        ? configFileLoader.getConfig(MOVIES_TEAM_DRIVE_ID)
+                        : configFileLoader.getConfig(SERIES_TEAM_DRIVE_ID);
+                break;
+            default:
+                keyResolver = job -> AdmissionMode.SINGLE.name();
+                permits = 1;
+        }
+        return new KeyedCopyAdmission<>(keyResolver, permits, CopyPriority.fromConfig(configFileLoader));
+    }
+
+    static AdmissionMode resolveMode(String configValue) {
+        if (configValue == null) return AdmissionMode.SINGLE;
+        try {
+            return AdmissionMode.valueOf(configValue.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return AdmissionMode.SINGLE;
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package tv.mangrana.downloads.workers.common.admission;
+
+import org.apache.commons.lang.StringUtils;
+import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.downloads.workers.common.jobs.JobHandler;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.COPY_PRIORITY;
+
+/**
+ * Order in which the jobs waiting for a copy permit are let through, so a burst of grabs makes
+ * the most titles available in the shortest time. Criteria are applied in the configured order.
+ * Comparators are built for a fixed instant, so readiness doesn't change in the middle of a sort.
+ */
+public enum CopyPriority {
+    /** downloads already completed (or with their estimated completion passed) go first */
+    READY,
+    /** single episodes and movies before season packs */
+    EPISODES_FIRST,
+    /** oldest grab first */
+    OLDEST,
+    /** smallest download first, unknown sizes last */
+    SMALLEST;
+
+    static final String DEFAULT_POLICY = "ready,episodes_first,oldest,smallest";
+
+    Comparator<JobHandler> comparator(Instant now) {
+        switch (this) {
+            case READY:
+                return Comparator.comparing(job -> isReady(job, now) ? 0 : 1);
+            case EPISODES_FIRST:
+                return Comparator.comparingInt(JobHandler::getElementsCount);
+            case OLDEST:
+                return Comparator.comparingLong(JobHandler::getGrabbedAtMillis);
+            default:
+                return Comparator.comparing(JobHandler::getTotalBytes, Comparator.nullsLast(Comparator.naturalOrder()));
+        }
+    }
+
+    static boolean isReady(JobHandler job, Instant now) {
+        Instant estimatedCompletion = job.getEstimatedCompletion();
+        return Objects.isNull(estimatedCompletion) || !estimatedCompletion.isAfter(now);
+    }
+
+    /**
+     * @return the configured priority as of a given instant, to be read once per sort or grant
+     */
+    public static Function<Instant, Comparator<JobHandler>> fromConfig(ConfigFileLoader configFileLoader) {
+        String policy = configFileLoader.getConfig(COPY_PRIORITY);
+        List<CopyPriority> criteria = parse(StringUtils.isBlank(policy) ? DEFAULT_POLICY : policy);
+        return now -> comparatorOf(criteria, now);
+    }
+
+    /**
+     * Parses a comma separated list of criteria, ignoring the unknown ones. "fifo" (or nothing valid) keeps the arrival order.
+     */
+    static List<CopyPriority> parse(String policy) {
+        List<CopyPriority> criteria = new ArrayList<>();
+        if (Objects.isNull(policy)) return criteria;
+        for (String criterion : policy.split(",")) {
+            try {
+                CopyPriority parsed = valueOf(criterion.trim().toUpperCase());
+                if (!criteria.contains(parsed)) criteria.add(parsed);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        return criteria;
+    }
+
+    static Comparator<JobHandler> comparatorOf(List<CopyPriority> criteria, Instant now) {
+        Comparator<JobHandler> comparator = (a, b) -> 0;
+        for (CopyPriority criterion : criteria) {
+            comparator = comparator.thenComparing(criterion.comparator(now));
+        }
+        return comparator;
+    }
+
+}
@@ -0,0 +1,148 @@
+package tv.mangrana.downloads.workers.common.admission;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Grants a fixed number of copy permits per key (team drive, job type...), so jobs with different keys proceed in parallel.
+ * When a permit is freed it goes to the waiting job that ranks first by the given priority, ties kept in arrival order.
+ * The priority is evaluated at that moment, since readiness and sizes change while the jobs wait,
+ * reading the clock once per grant so every waiter is ranked against the same instant.
+ * Waiting jobs hold a pending future, not a thread.
+ */
+public class KeyedCopyAdmission<J> implements CopyAdmissionController<J> {
+
+    private final Function<J, String> keyResolver;
+    private final int permitsPerKey;
+    private final Function<Instant, Comparator<J>> priority;
+    private final Supplier<Instant> clock;
+    private final AtomicLong arrivals = new AtomicLong();
+    private final Map<String, Gate> gatesByKey = new ConcurrentHashMap<>();
+    private final Map<J, Gate> grantedPermits = new ConcurrentHashMap<>();
+
+    public KeyedCopyAdmission(Function<J, String> keyResolver, int permitsPerKey) {
+        this(keyResolver, permitsPerKey, now -> (a, b) -> 0);
+    }
+
+    public KeyedCopyAdmission(Function<J, String> keyResolver, int permitsPerKey, Function<Instant, Comparator<J>> priority) {
+        this(keyResolver, permitsPerKey, priority, Instant::now);
+    }
+
+    KeyedCopyAdmission(Function<J, String> keyResolver, int permitsPerKey, Function<Instant, Comparator<J>> priority, Supplier<Instant> clock) {
+        this.keyResolver = keyResolver;
+        this.permitsPerKey = Math.max(1, permitsPerKey);
+        this.priority = priority;
+        this.clock = clock;
+    }
+
+    private Comparator<Ticket> ticketOrder() {
+        return Comparator.<Ticket, J>comparing(ticket -> ticket.job, priority.apply(clock.get()))
+                .thenComparingLong(ticket -> ticket.arrival);
+    }
+
+    @Override
+    public CompletableFuture<Void> acquire(J job) {
+        String key = Objects.toString(keyResolver.apply(job));
+        Gate gate = gatesByKey.computeIfAbsent(key, k -> new Gate());
+        return gate.acquire(new Ticket(job, arrivals.incrementAndGet()));
+    }
+
+    @Override
+    public void release(J job) {
+        Gate gate = grantedPermits.remove(job);
+        if (gate != null) {
+            gate.release();
+        }
+    }
+
+    private class Ticket {
+        private final J job;
+        private final long arrival;
+        private final CompletableFuture<Void> turn = new CompletableFuture<>();
+
+        private Ticket(J job, long arrival) {
+            this.job = job;
+            this.arrival = arrival;
+        }
+    }
+
+    private class Gate {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<Ticket> waiting = new ArrayList<>();
+        private int available = permitsPerKey;
+
+        CompletableFuture<Void> acquire(Ticket ticket) {
+            lock.lock();
+            try {
+                waiting.add(ticket);
+            } finally {
+                lock.unlock();
+            }
+            ticket.turn.whenComplete((granted, failure) -> {
+                if (failure != null) giveUp(ticket);
+            });
+            grant();
+            return ticket.turn;
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                available++;
+            } finally {
+                lock.unlock();
+            }
+            grant();
+        }
+
+        private void giveUp(Ticket ticket) {
+            lock.lock();
+            try {
+                waiting.remove(ticket);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Hands the free permits to the waiters ranking first. Their turns are completed out of the lock, since
+         * that runs the jobs' next steps; a turn given up meanwhile hands its permit on.
+         */
+        private void grant() {
+            List<Ticket> granted = new ArrayList<>();
+            lock.lock();
+            try {
+                if (available > 0 && !waiting.isEmpty()) {
+                    Comparator<Ticket> order = ticketOrder();
+                    while (available > 0 && !waiting.isEmpty()) {
+                        Ticket next = Collections.min(waiting, order);
+                        waiting.remove(next);
+                        available--;
+                        granted.add(next);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (Ticket ticket : granted) {
+                grantedPermits.put(ticket.job, this);
+                if (!ticket.turn.complete(null)) {
+                    grantedPermits.remove(ticket.job);
+                    release();
+                }
+            }
+        }
+    }
+
+}
@@ -2,32 +2,38 @@ package tv.mangrana.downloads.workers.common.jobs;
 
 import org.apache.commons.lang.StringUtils;
 import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.downloads.workers.common.ArrQueuePoller;
+import tv.mangrana.downloads.workers.common.ClientsRegistry;
 import tv.mangrana.downloads.workers.common.ElementHandler;
 import tv.mangrana.downloads.workers.common.JobOrchestrator;
+import tv.mangrana.downloads.workers.common.SharedScheduler;
 import tv.mangrana.downloads.workers.radarr.jobs.RadarrJobHandler;
-import tv.mangrana.downloads.workers.sonarr.jobs.SonarrJobFile;
 import tv.mangrana.downloads.workers.sonarr.jobs.SonarrJobHandler;
 import tv.mangrana.exception.IncorrectWorkingReferencesException;
 import tv.mangrana.exception.NoElementFoundException;
 import tv.mangrana.exception.TooMuchTriesException;
-import tv.mangrana.google.api.client.RemoteCopyService;
 import tv.mangrana.jobs.JobFile;
 import tv.mangrana.jobs.JobFileManager;
 import tv.mangrana.utils.EasyLogger;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Writer;
-import java.time.Duration;
 import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.ARR_OUTPUT_PATH_WAIT_MINUTES;
+import static tv.mangrana.utils.Output.msg;
 
 public abstract class JobHandler implements Runnable {
 
     protected EasyLogger logger;
 
     protected ConfigFileLoader configFileLoader;
-    protected RemoteCopyService copyService;
+    protected final ClientsRegistry clients;
+    protected final JobStateStore jobStates;
 
     @SuppressWarnings("rawtypes")
     protected JobFile jobFile;
@@ -38,20 +44,33 @@ public abstract class JobHandler implements Runnable {
     protected String elementName;
     protected String fileName;
     protected String downloadId;
+    private final long pickedUpAtNanos = System.nanoTime();
+    private final long grabbedAtMillis;
 
     @SuppressWarnings("rawtypes")
     protected JobHandler(ConfigFileLoader configFileLoader, JobFile jobFile, JobOrchestrator caller) throws IOException, IncorrectWorkingReferencesException {
         this.configFileLoader = configFileLoader;
-        copyService = new RemoteCopyService(configFileLoader);
         this.jobFile = jobFile;
         orchestrator = caller;
+        clients = caller.getClients();
+        jobStates = caller.getJobStates();
+        grabbedAtMillis = Objects.isNull(jobFile.getFile()) ? System.currentTimeMillis() : jobFile.getFile().lastModified();
         try {
             loadInfoFromJobFile();
         } catch (Exception e) {
             e.printStackTrace();
             throw new IncorrectWorkingReferencesException("A problem was risen when getting info from file: "+e.getMessage());
         }
+        restoreFromJobStates();
+    }
+
+    private void restoreFromJobStates() {
+        JobStateStore.JobState savedState = jobStates.get(getJobKey());
+        if (StringUtils.isEmpty(fileName) && Objects.nonNull(savedState)) {
+            fileName = savedState.getElementName();
+        }
     }
+
     protected abstract void loadInfoFromJobFile();
     public void tryToMoveIfPossible() throws IOException, IncorrectWorkingReferencesException, NoElementFoundException, TooMuchTriesException {
         if (StringUtils.isEmpty(fileName)) {
@@ -59,86 +78,148 @@ public abstract class JobHandler implements Runnable {
         } else {
             elementName = fileName;
             logger.nLog("going to try handle the following element: "+downloadId);
-            getElementHandler().crashHandle();
+            trackedElementHandler().crashHandle();
             jobFile.forceMarkDone();
+            jobStates.forget(getJobKey());
         }
     }
 
+    /**
+     * Only starts the job: its steps are chained on futures, so the worker is given back while the job waits
+     * for the output path, for its copy turn or for the download to land, and the job finishes on the shared threads.
+     */
     @Override
     public void run() {
-        boolean error=false;
+        logger.nLog("going to handle the so called <{0}>", fullTitle);
+        setJobStateInitiated();
+        CompletableFuture<Void> handled;
         try {
-            logger.nLog("going to handle the so called <{0}>", fullTitle);
-            setJobStateInitiated();
-            if (StringUtils.isNotEmpty(fileName)) {
-                logger.nLog("Retrieved successfully from file the cached element name: <{0}> :D", fileName);
-                elementName = fileName;
-            } else {
-                retrieveFileNameFromArrApp();
-                writeElementNameToJobInfo(elementName);
+            handled = resolveElementName()
+                    .thenCompose(named -> setJobStateWorkingOrSleep())
+                    .thenComposeAsync(working -> handleTrackedElement(), SharedScheduler.io())
+                    .thenRun(jobFile::markDone);
+        } catch (RuntimeException e) {
+            handled = new CompletableFuture<>();
+            handled.completeExceptionally(e);
+        }
+        handled.whenCompleteAsync((done, failure) -> finish(failure), SharedScheduler.io());
+    }
+
+    private CompletableFuture<Void> resolveElementName() {
+        if (StringUtils.isNotEmpty(fileName)) {
+            logger.nLog("Retrieved successfully from file the cached element name: <{0}> :D", fileName);
+            elementName = fileName;
+            return CompletableFuture.completedFuture(null);
+        }
+        return retrieveFileNameFromArrApp().thenRun(() -> {
+            jobStates.recordElementName(getJobKey(), elementName);
+            logger.nLog("persisted elementName to the job state store -> "+elementName);
+        });
+    }
+
+    private CompletableFuture<Void> handleTrackedElement() {
+        try {
+            return trackedElementHandler().handle();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void finish(Throwable failure) {
+        boolean error = Objects.nonNull(failure);
+        if (error) {
+            Throwable cause = failure instanceof CompletionException && Objects.nonNull(failure.getCause()) ? failure.getCause() : failure;
+            logger.nLog("something wrong: {0}", cause.getMessage());
+            if (!orchestrator.isShuttingDown()) {
+                jobStates.clearDriveIds(getJobKey());
             }
-            setJobStateWorkingOrSleep();
-            getElementHandler().handle();
-            jobFile.markDone();
-        } catch (Exception e) {
-            error=true;
-            logger.nLog("something wrong: {0}", e.getMessage());
             jobFile.driveBack();
-            e.printStackTrace();
-        } finally {
-            setJobStateFinished(error);
+            cause.printStackTrace();
         }
+        setJobStateFinished(error);
     }
+
     protected abstract ElementHandler getElementHandler() throws IOException;
 
-    protected abstract void retrieveFileNameFromArrApp() throws TooMuchTriesException;
+    /**
+     * @return completed once the element name is set from the Arr app
+     */
+    protected abstract CompletableFuture<Void> retrieveFileNameFromArrApp();
 
-    private void writeElementNameToJobInfo(String elementName) throws IOException {
-        try (Writer output = new BufferedWriter(
-                new FileWriter(jobFile.getFile().getAbsolutePath(), true))) {
-            output.append(SonarrJobFile.GrabInfo.JAVA_FILENAME.name().toLowerCase().concat(": "+elementName));
-            logger.nLog("persisted elementName to job file -> "+elementName);
-        }
+    /**
+     * Waits for the queue poller to see the output path of this download, up to a configured time, so a grab
+     * that never gets one (stalled or removed torrent) is given up with a TooMuchTriesException; the job is then
+     * retried on a later pick-up.
+     */
+    protected CompletableFuture<String> awaitOutputPath(ArrQueuePoller queuePoller) {
+        int waitMinutes = configFileLoader.getIntConfig(ARR_OUTPUT_PATH_WAIT_MINUTES, 60);
+        CompletableFuture<String> outputPath = queuePoller.awaitOutputPath(downloadId);
+        return SharedScheduler.within(outputPath, waitMinutes, TimeUnit.MINUTES)
+                .handle((path, failure) -> {
+                    if (Objects.isNull(failure)) return path;
+                    if (!outputPath.isDone()) queuePoller.forget(downloadId, outputPath);
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    throw new CompletionException(cause instanceof TimeoutException
+                            ? new TooMuchTriesException(msg("downloadId={0} showed no output path on the queue after {1} minutes", downloadId, waitMinutes))
+                            : new TooMuchTriesException(msg("could not get the output path of downloadId={0}: {1}", downloadId, cause.getMessage())));
+                });
     }
 
-    private void setJobStateWorkingOrSleep() {
-        synchronized (orchestrator) {
-            orchestrator.jobHasFileName(this);
-            if (orchestrator.isWorkingWithAJob()) {
-                try {
-                    Instant beforeWait = Instant.now();
-                    while (orchestrator.isWorkingWithAJob()) {
-                        orchestrator.wait();
-                    }
-                    Instant afterWait = Instant.now();
-                    if (Duration.between(beforeWait, afterWait).toMinutes()<1) {
-                        logger.nHLog("seems that things are going too fast between job sleep and its resume");
-                    }
-                } catch (InterruptedException e) {
-                    logger.nHLog("could not put on waiting the job {0}", jobTitle);
-                    Thread.currentThread().interrupt();
-                    e.printStackTrace();
-                }
-            }
+    private ElementHandler trackedElementHandler() throws IOException {
+        JobStateStore.JobState savedState = jobStates.get(getJobKey());
+        return getElementHandler().trackingDriveIds(
+                Objects.isNull(savedState) ? null : savedState.getDriveIds(),
+                (role, driveId) -> jobStates.recordDriveId(getJobKey(), role, driveId))
+                .expectingCompletionAt(this::getEstimatedCompletion);
+    }
+
+    /**
+     * @return the download as seen on the last poll of the Arr queue, or null if unknown (e.g. already imported)
+     */
+    protected ArrQueuePoller.QueueEntry getQueueEntry() {
+        return null;
+    }
+
+    /**
+     * @return when the download client expects this download to be complete, or null if unknown
+     */
+    public Instant getEstimatedCompletion() {
+        ArrQueuePoller.QueueEntry entry = getQueueEntry();
+        return Objects.isNull(entry) ? null : entry.getEstimatedCompletion();
+    }
+
+    /**
+     * @return the size of the whole download in bytes, or null if unknown
+     */
+    public Long getTotalBytes() {
+        ArrQueuePoller.QueueEntry entry = getQueueEntry();
+        return Objects.isNull(entry) ? null : entry.getSizeBytes();
+    }
+
+    /**
+     * @return how many library elements (episodes, movies) this download brings
+     */
+    public int getElementsCount() {
+        return 1;
+    }
+
+    private CompletableFuture<Void> setJobStateWorkingOrSleep() {
+        orchestrator.jobHasFileName(this);
+        return orchestrator.copyTurn(this).thenRun(() -> {
             jobFile.markDoing();
             orchestrator.jobWorking(this);
-        }
+        });
     }
 
     private void setJobStateInitiated() {
-        synchronized (orchestrator) {
-            orchestrator.jobInitiated(this);
-        }
+        orchestrator.jobInitiated(this);
     }
 
     private void setJobStateFinished(boolean error) {
-        synchronized (orchestrator) {
-            if (error) {
-                orchestrator.jobError(this);
-            } else {
-                orchestrator.jobFinished(this);
-            }
-            orchestrator.notifyAll();
+        if (error) {
+            orchestrator.jobError(this);
+        } else {
+            orchestrator.jobFinished(this);
         }
     }
 
@@ -149,6 +230,18 @@ public abstract class JobHandler implements Runnable {
         }
     }
 
+    public long getPickedUpAtNanos() {
+        return pickedUpAtNanos;
+    }
+
+    public long getGrabbedAtMillis() {
+        return grabbedAtMillis;
+    }
+
+    public String getJobKey() {
+        return jobFile.getFile().getName();
+    }
+
     public String getFullTitle() {
         return fullTitle;
     }
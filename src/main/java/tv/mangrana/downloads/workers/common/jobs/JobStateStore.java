@@ -0,0 +1,301 @@
+package tv.mangrana.downloads.workers.common.jobs;
+
+import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.utils.EasyLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.JOB_STATE_STORE_FILE;
+
+/**
+ * Crash-safe store of the jobs progress: every state transition, resolved element name and Drive id is appended
+ * (and synced) to a log on local disk, which is replayed at start-up and compacted once it grows too much.
+ * Each record ends with the CRC of its columns and a line terminator, so a record torn by a crash mid-append
+ * is dropped on replay instead of resuming with a truncated name or id. Jobs are keyed by their job file name.
+ */
+public class JobStateStore implements Closeable {
+
+    private static final String DEFAULT_STORE_FILE = "/config/job_states.log";
+    private static final String STATE = "state";
+    private static final String ELEMENT_NAME = "element_name";
+    private static final String DRIVE_ID_PREFIX = "drive_id.";
+    private static final String FORGET = "-";
+    private static final int COMPACTION_MIN_LINES = 500;
+
+    private final EasyLogger logger;
+    private final Path storeFile;
+    private final Map<String, Map<String, String>> jobs = new LinkedHashMap<>();
+    /** not a monitor, since the log is synced to disk while holding it and jobs may run on virtual threads */
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel logChannel;
+    private int appendedLines;
+
+    public static JobStateStore fromConfig(ConfigFileLoader configFileLoader) {
+        String storeFile = configFileLoader.getConfig(JOB_STATE_STORE_FILE);
+        Path storePath = Paths.get(storeFile == null ? DEFAULT_STORE_FILE : storeFile);
+        try {
+            return new JobStateStore(storePath);
+        } catch (IOException e) {
+            new EasyLogger("JOB_STATES").nHLog("could not open the job state store at {0} ({1}), jobs progress won''t survive a restart",
+                    storePath, e.getMessage());
+            return new JobStateStore();
+        }
+    }
+
+    /**
+     * Memory-only store, for when there is no writable place for the log.
+     */
+    public JobStateStore() {
+        this.logger = new EasyLogger("JOB_STATES");
+        this.storeFile = null;
+    }
+
+    public JobStateStore(Path storeFile) throws IOException {
+        this.logger = new EasyLogger("JOB_STATES");
+        this.storeFile = storeFile;
+        if (Files.exists(storeFile)) {
+            replay();
+        }
+        compact();
+    }
+
+    public static class JobState {
+        private final Map<String, String> fields;
+        JobState(Map<String, String> fields) {
+            this.fields = Collections.unmodifiableMap(new HashMap<>(fields));
+        }
+        public String getState() {
+            return fields.get(STATE);
+        }
+        public String getElementName() {
+            return fields.get(ELEMENT_NAME);
+        }
+        public Map<String, String> getDriveIds() {
+            Map<String, String> driveIds = new HashMap<>();
+            fields.forEach((field, value) -> {
+                if (field.startsWith(DRIVE_ID_PREFIX)) driveIds.put(field.substring(DRIVE_ID_PREFIX.length()), value);
+            });
+            return driveIds;
+        }
+    }
+
+    /**
+     * @return null if nothing is known about the job
+     */
+    public JobState get(String jobKey) {
+        lock.lock();
+        try {
+            Map<String, String> fields = jobs.get(jobKey);
+            return Objects.isNull(fields) ? null : new JobState(fields);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordState(String jobKey, String state) {
+        record(jobKey, STATE, state);
+    }
+
+    public void recordElementName(String jobKey, String elementName) {
+        record(jobKey, ELEMENT_NAME, elementName);
+    }
+
+    public void recordDriveId(String jobKey, String role, String driveId) {
+        record(jobKey, DRIVE_ID_PREFIX + role, driveId);
+    }
+
+    public void clearDriveIds(String jobKey) {
+        lock.lock();
+        try {
+            Map<String, String> fields = jobs.get(jobKey);
+            if (Objects.isNull(fields)) return;
+            for (String field : fields.keySet().toArray(new String[0])) {
+                if (field.startsWith(DRIVE_ID_PREFIX)) record(jobKey, field, "");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * For jobs already done, whose progress is no longer needed.
+     */
+    public void forget(String jobKey) {
+        lock.lock();
+        try {
+            if (!jobs.containsKey(jobKey)) return;
+            jobs.remove(jobKey);
+            append(jobKey, FORGET, "");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return jobs.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(String jobKey, String field, String value) {
+        lock.lock();
+        try {
+            if (Objects.isNull(jobKey) || Objects.isNull(value)) return;
+            Map<String, String> fields = jobs.computeIfAbsent(jobKey, k -> new HashMap<>());
+            if (value.isEmpty()) {
+                if (Objects.isNull(fields.remove(field))) return;
+            } else if (value.equals(fields.put(field, value))) {
+                return;
+            }
+            append(jobKey, field, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(String jobKey, String field, String value) {
+        if (Objects.isNull(logChannel)) return;
+        try {
+            writeLine(logChannel, jobKey, field, value);
+            logChannel.force(false);
+            appendedLines++;
+            if (appendedLines > Math.max(COMPACTION_MIN_LINES, 4 * jobs.size())) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.nHLog("could not persist the state of the job {0}: {1}", jobKey, e.getMessage());
+        }
+    }
+
+    /**
+     * The start-up compaction rewrites the log right after, so a dropped torn tail is not followed by new records.
+     */
+    private void replay() throws IOException {
+        int skipped = 0;
+        String log = new String(Files.readAllBytes(storeFile), StandardCharsets.UTF_8);
+        int terminated = log.lastIndexOf('\n') + 1;
+        if (terminated < log.length()) {
+            skipped++;
+        }
+        for (String line : log.substring(0, terminated).split("\n")) {
+            if (line.isEmpty()) continue;
+            int checksumStart = line.lastIndexOf('\t');
+            String[] columns = checksumStart < 0 ? new String[0] : line.substring(0, checksumStart).split("\t", -1);
+            if (columns.length != 3 || !checksum(line.substring(0, checksumStart)).equals(line.substring(checksumStart + 1))) {
+                skipped++;
+                continue;
+            }
+            String jobKey = unescape(columns[0]);
+            String field = unescape(columns[1]);
+            String value = unescape(columns[2]);
+            if (FORGET.equals(field)) {
+                jobs.remove(jobKey);
+            } else if (value.isEmpty()) {
+                Map<String, String> fields = jobs.get(jobKey);
+                if (Objects.nonNull(fields)) fields.remove(field);
+            } else {
+                jobs.computeIfAbsent(jobKey, k -> new HashMap<>()).put(field, value);
+            }
+        }
+        logger.nLog("job state store loaded: {0} jobs with saved progress, {1} torn records skipped", jobs.size(), skipped);
+    }
+
+    /**
+     * Rewrites the log with just the current state of every job, then swaps it atomically.
+     * If the rewrite fails the log is reopened as it was, so the next appends still reach the disk.
+     */
+    private void compact() throws IOException {
+        lock.lock();
+        try {
+            if (Objects.isNull(storeFile)) return;
+            if (Objects.nonNull(logChannel)) {
+                logChannel.close();
+                logChannel = null;
+            }
+            try {
+                Path tmpFile = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+                try (FileChannel tmpChannel = FileChannel.open(tmpFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    for (Map.Entry<String, Map<String, String>> job : jobs.entrySet()) {
+                        for (Map.Entry<String, String> field : job.getValue().entrySet()) {
+                            writeLine(tmpChannel, job.getKey(), field.getKey(), field.getValue());
+                        }
+                    }
+                    tmpChannel.force(true);
+                }
+                Files.move(tmpFile, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                logChannel = FileChannel.open(storeFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                appendedLines = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void writeLine(FileChannel channel, String jobKey, String field, String value) throws IOException {
+        String record = escape(jobKey) + "\t" + escape(field) + "\t" + escape(value);
+        String line = record + "\t" + checksum(record) + "\n";
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static String checksum(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String text) {
+        StringBuilder unescaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (Objects.nonNull(logChannel)) {
+                logChannel.close();
+                logChannel = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
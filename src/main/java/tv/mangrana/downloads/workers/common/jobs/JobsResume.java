@@ -2,104 +2,114 @@ package tv.mangrana.downloads.workers.common.jobs;
 
 import tv.mangrana.jobs.JobFileManager.JobFileType;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static tv.mangrana.utils.Output.*;
 
+/**
+ * In-memory view of the jobs of the current run, printed now and then. A version counter tells whether
+ * anything changed since the last print, jobs are kept ordered by their last update, and the finished
+ * ones are evicted once they are older than the retention.
+ * Workers update it concurrently without locking; each job transition is applied atomically.
+ */
 public class JobsResume {
 
-    Map<String, JobInfo> indexedJobsInfo = new HashMap<>();
-    List<JobInfo> jobsState;
-    List<JobInfo> jobsStatePrintedLastTime = Collections.emptyList();
+    private static final Duration DEFAULT_FINISHED_RETENTION = Duration.ofHours(24);
+    private static final Set<String> FINISHED_STATES = new HashSet<>(Arrays.asList("finished", "error"));
+
+    final ConcurrentMap<String, JobInfo> indexedJobsInfo = new ConcurrentHashMap<>();
+    final ConcurrentNavigableMap<Long, JobInfo> jobsByUpdate = new ConcurrentSkipListMap<>();
+    final AtomicLong updateSequence = new AtomicLong();
+    final AtomicLong version = new AtomicLong();
+    volatile long printedVersion = -1;
     int reportDelayCounter = 0;
+    private final Duration finishedRetention;
 
     public JobsResume(){
-        jobsState = new ArrayList<>();
+        this(DEFAULT_FINISHED_RETENTION);
+    }
+
+    public JobsResume(Duration finishedRetention){
+        this.finishedRetention = finishedRetention;
     }
 
+    /**
+     * Immutable, so a reader never sees a job half updated: every transition replaces it.
+     */
     private static class JobInfo {
-        JobFileType jobType;
-        String title;
-        String state;
-        LocalDateTime updateTime;
-        public JobInfo(JobFileType jobType, String title, String state, LocalDateTime updateTime) {
+        final JobFileType jobType;
+        final String title;
+        final String state;
+        final LocalDateTime updateTime;
+        final long sequence;
+        JobInfo(JobFileType jobType, String title, String state, LocalDateTime updateTime, long sequence) {
             this.jobType = jobType;
             this.title = title;
             this.state = state;
             this.updateTime = updateTime;
+            this.sequence = sequence;
         }
-        public JobInfo(JobInfo toClone) {
-            this(toClone.jobType, toClone.title, toClone.state, toClone.updateTime);
-        }
-        public LocalDateTime getUpdateTime() {
-            return updateTime;
-        }
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            JobInfo jobInfo = (JobInfo) o;
-            return Objects.equals(title, jobInfo.title) && Objects.equals(state, jobInfo.state) && Objects.equals(updateTime, jobInfo.updateTime);
-        }
-        @Override
-        public int hashCode() {
-            return Objects.hash(title, state, updateTime);
-        }
-        public void setState(String state) {
-            this.state = state;
-        }
-        public void setUpdateTime(LocalDateTime updateTime) {
-            this.updateTime = updateTime;
+        boolean isFinished() {
+            return FINISHED_STATES.contains(state);
         }
     }
 
     public void put(JobFileType jobType, String jobTitle, String state) {
-        LocalDateTime now = LocalDateTime.now();
-        if (indexedJobsInfo.containsKey(jobTitle)) {
-            JobInfo jobInfo = indexedJobsInfo.get(jobTitle);
-            jobInfo.setState(state);
-            jobInfo.setUpdateTime(now);
-        } else {
-            JobInfo jobInfo = new JobInfo(jobType, jobTitle, state, now);
-            indexedJobsInfo.put(jobTitle, jobInfo);
-            jobsState.add(jobInfo);
-        }
+        indexedJobsInfo.compute(jobTitle, (title, previous) -> {
+            if (previous != null) {
+                jobsByUpdate.remove(previous.sequence, previous);
+            }
+            JobInfo jobInfo = new JobInfo(jobType, title, state, LocalDateTime.now(), updateSequence.incrementAndGet());
+            jobsByUpdate.put(jobInfo.sequence, jobInfo);
+            return jobInfo;
+        });
+        version.incrementAndGet();
     }
 
     public void resumeJobsLogPrint() {
         resumeJobsLogPrint(false);
     }
     public void resumeJobsLogPrint(boolean hasIncorporatedJobs) {
+        evictOldFinishedJobs();
         if (hasIncorporatedJobs || (reportDelayCounter > 10 && !sameResumeAlreadyPrinted())) {
+            long printingVersion = version.get();
             log("**** JOBS RESUME ****");
-            this.jobsState
-                    .stream()
-                    .sorted(Comparator.comparing(JobInfo::getUpdateTime))
-                    .forEach(job ->
-                            log("* Type: {3} | Job: {0} | current state: {1} | updated: {2}",
-                                    job.title, job.state, job.updateTime.format(DateTimeFormatter.ofPattern(DATE_TIME_FORMAT)), job.jobType.getFolderName())
-                    );
+            jobsByUpdate.values().forEach(job ->
+                    log("* Type: {3} | Job: {0} | current state: {1} | updated: {2}",
+                            job.title, job.state, job.updateTime.format(DateTimeFormatter.ofPattern(DATE_TIME_FORMAT)), job.jobType.getFolderName())
+            );
             reportDelayCounter = 0;
             logWithDate("**** JOBS RESUME ****");
-            jobsStatePrintedLastTime = cloneJobsList(jobsState);
+            printedVersion = printingVersion;
         } else {
             reportDelayCounter++;
         }
     }
 
     public boolean sameResumeAlreadyPrinted() {
-        if (jobsStatePrintedLastTime.size() != jobsState.size()) return false;
-        for (JobInfo job : jobsState) {
-            if (!jobsStatePrintedLastTime.contains(job)) return false;
-        }
-        return true;
+        return printedVersion == version.get();
+    }
+
+    public int size() {
+        return indexedJobsInfo.size();
     }
 
-    public static List<JobInfo> cloneJobsList(List<JobInfo> list) {
-        List<JobInfo> clone = new ArrayList<>(list.size());
-        for (JobInfo job : list) clone.add(new JobInfo(job));
-        return clone;
+    private void evictOldFinishedJobs() {
+        LocalDateTime limit = LocalDateTime.now().minus(finishedRetention);
+        for (JobInfo job : jobsByUpdate.values()) {
+            if (!job.updateTime.isBefore(limit)) break;
+            if (job.isFinished() && indexedJobsInfo.remove(job.title, job)) {
+                jobsByUpdate.remove(job.sequence, job);
+                version.incrementAndGet();
+            }
+        }
     }
 }
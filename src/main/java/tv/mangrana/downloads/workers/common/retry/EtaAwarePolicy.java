@@ -0,0 +1,44 @@
+package tv.mangrana.downloads.workers.common.retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Schedules the first retry right after the estimated completion time reported by the *arr queue
+ * (plus a margin for the upload to land on Drive), and then follows the fallback policy.
+ * That first wait is capped, so a far or bogus ETA (e.g. a stalled download) doesn't put off the checks for hours.
+ */
+public class EtaAwarePolicy implements RetryPolicy {
+
+    private final Supplier<Instant> estimatedCompletion;
+    private final Duration margin;
+    private final long maxDelayMillis;
+    private final RetryPolicy fallback;
+
+    public EtaAwarePolicy(Supplier<Instant> estimatedCompletion, Duration margin, long maxDelayMillis, RetryPolicy fallback) {
+        this.estimatedCompletion = estimatedCompletion;
+        this.margin = margin;
+        this.maxDelayMillis = maxDelayMillis;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public long delayMillis(int failedAttempts) {
+        if (failedAttempts == 1) {
+            Instant eta = estimatedCompletion.get();
+            if (Objects.nonNull(eta)) {
+                long untilEta = Duration.between(Instant.now(), eta.plus(margin)).toMillis();
+                if (untilEta > 0) return Math.min(untilEta, maxDelayMillis);
+            }
+        }
+        return fallback.delayMillis(failedAttempts);
+    }
+
+    @Override
+    public String describe() {
+        return "at the estimated completion time, then " + fallback.describe();
+    }
+
+}
@@ -0,0 +1,40 @@
+package tv.mangrana.downloads.workers.common.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static tv.mangrana.utils.Output.msg;
+
+/**
+ * Doubles the wait after every failed attempt up to a cap, with a random jitter so that
+ * jobs started together don't hit the APIs in bursts.
+ */
+public class ExponentialBackoffPolicy implements RetryPolicy {
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double jitterRatio;
+
+    public ExponentialBackoffPolicy(long initialDelayMillis, long maxDelayMillis, double jitterRatio) {
+        this.initialDelayMillis = Math.max(1, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+        this.jitterRatio = Math.min(Math.max(0, jitterRatio), 1);
+    }
+
+    @Override
+    public long delayMillis(int failedAttempts) {
+        int doublings = Math.min(Math.max(0, failedAttempts - 1), 30);
+        long delay = Math.min(maxDelayMillis, initialDelayMillis << doublings);
+        if (jitterRatio == 0) return delay;
+        double jitter = ThreadLocalRandom.current().nextDouble(-jitterRatio, jitterRatio);
+        return Math.max(1, Math.round(delay * (1 + jitter)));
+    }
+
+    @Override
+    public String describe() {
+        return msg("exponentially from {0} seconds up to {1} seconds",
+                String.valueOf(TimeUnit.MILLISECONDS.toSeconds(initialDelayMillis)),
+                String.valueOf(TimeUnit.MILLISECONDS.toSeconds(maxDelayMillis)));
+    }
+
+}
@@ -0,0 +1,34 @@
+package tv.mangrana.downloads.workers.common.retry;
+
+import java.util.concurrent.TimeUnit;
+
+import static tv.mangrana.utils.Output.msg;
+
+/**
+ * Checks often while the element is likely about to show up, and then settles to the slow interval.
+ */
+public class FastThenSlowPolicy implements RetryPolicy {
+
+    private final long fastDelayMillis;
+    private final int fastAttempts;
+    private final long slowDelayMillis;
+
+    public FastThenSlowPolicy(long fastDelayMillis, int fastAttempts, long slowDelayMillis) {
+        this.fastDelayMillis = fastDelayMillis;
+        this.fastAttempts = fastAttempts;
+        this.slowDelayMillis = slowDelayMillis;
+    }
+
+    @Override
+    public long delayMillis(int failedAttempts) {
+        return failedAttempts <= fastAttempts ? fastDelayMillis : slowDelayMillis;
+    }
+
+    @Override
+    public String describe() {
+        return msg("every {0} seconds for {1} times, then every {2} seconds",
+                String.valueOf(TimeUnit.MILLISECONDS.toSeconds(fastDelayMillis)), String.valueOf(fastAttempts),
+                String.valueOf(TimeUnit.MILLISECONDS.toSeconds(slowDelayMillis)));
+    }
+
+}
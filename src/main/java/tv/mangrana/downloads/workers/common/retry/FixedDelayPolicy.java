@@ -0,0 +1,29 @@
+package tv.mangrana.downloads.workers.common.retry;
+
+import java.util.concurrent.TimeUnit;
+
+import static tv.mangrana.utils.Output.msg;
+
+public class FixedDelayPolicy implements RetryPolicy {
+
+    private final long delayMillis;
+
+    public FixedDelayPolicy(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    public static FixedDelayPolicy everyMinutes(int minutes) {
+        return new FixedDelayPolicy(TimeUnit.MINUTES.toMillis(minutes));
+    }
+
+    @Override
+    public long delayMillis(int failedAttempts) {
+        return delayMillis;
+    }
+
+    @Override
+    public String describe() {
+        return msg("every {0} seconds", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(delayMillis)));
+    }
+
+}
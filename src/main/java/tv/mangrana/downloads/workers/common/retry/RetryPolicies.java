@@ -0,0 +1,70 @@
+package tv.mangrana.downloads.workers.common.retry;
+
+import org.apache.commons.lang.StringUtils;
+import tv.mangrana.config.ConfigFileLoader;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.RETRY_POLICIES;
+
+/**
+ * Resolves the retry policy of each RetryEngine title from the configuration, as a list of
+ * {@code Title=policy} pairs (e.g. {@code SeasonOnGoogle=eta,MovieOnGoogle=exponential}).
+ * Titles not listed keep the fixed interval.
+ */
+public class RetryPolicies {
+
+    public enum PolicyType {FIXED, EXPONENTIAL, FAST_THEN_SLOW, ETA}
+
+    private static final long FAST_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int FAST_ATTEMPTS = 5;
+    private static final long BACKOFF_INITIAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int BACKOFF_CAP_INTERVALS = 4;
+    private static final double BACKOFF_JITTER = 0.2;
+    private static final Duration ETA_MARGIN = Duration.ofMinutes(2);
+
+    private RetryPolicies() {}
+
+    /**
+     * @param intervalMinutes the configured interval of the title, which the policies scale from
+     * @param estimatedCompletion when the download is expected to finish, or null if unknown
+     */
+    public static RetryPolicy forTitle(ConfigFileLoader configFileLoader, String title, int intervalMinutes,
+                                       Supplier<Instant> estimatedCompletion) {
+        return create(resolveType(configFileLoader.getConfig(RETRY_POLICIES), title), intervalMinutes, estimatedCompletion);
+    }
+
+    static PolicyType resolveType(String configuredPolicies, String title) {
+        if (StringUtils.isBlank(configuredPolicies)) return PolicyType.FIXED;
+        for (String titlePolicy : configuredPolicies.split(",")) {
+            String[] pair = titlePolicy.split("=");
+            if (pair.length == 2 && pair[0].trim().equals(title)) {
+                try {
+                    return PolicyType.valueOf(pair[1].trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    return PolicyType.FIXED;
+                }
+            }
+        }
+        return PolicyType.FIXED;
+    }
+
+    public static RetryPolicy create(PolicyType type, int intervalMinutes, Supplier<Instant> estimatedCompletion) {
+        long intervalMillis = TimeUnit.MINUTES.toMillis(Math.max(1, intervalMinutes));
+        switch (type) {
+            case EXPONENTIAL:
+                return new ExponentialBackoffPolicy(BACKOFF_INITIAL_MILLIS, intervalMillis * BACKOFF_CAP_INTERVALS, BACKOFF_JITTER);
+            case FAST_THEN_SLOW:
+                return new FastThenSlowPolicy(Math.min(FAST_DELAY_MILLIS, intervalMillis), FAST_ATTEMPTS, intervalMillis);
+            case ETA:
+                return new EtaAwarePolicy(estimatedCompletion == null ? () -> null : estimatedCompletion, ETA_MARGIN, intervalMillis,
+                        new FastThenSlowPolicy(Math.min(FAST_DELAY_MILLIS, intervalMillis), FAST_ATTEMPTS, intervalMillis));
+            default:
+                return new FixedDelayPolicy(intervalMillis);
+        }
+    }
+
+}
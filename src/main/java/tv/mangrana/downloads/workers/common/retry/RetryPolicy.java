@@ -0,0 +1,15 @@
+package tv.mangrana.downloads.workers.common.retry;
+
+/**
+ * Decides how long a {@link tv.mangrana.downloads.workers.common.RetryEngine} waits before each new attempt.
+ */
+public interface RetryPolicy {
+
+    /**
+     * @param failedAttempts attempts already done without success (1 for the first retry)
+     */
+    long delayMillis(int failedAttempts);
+
+    String describe();
+
+}
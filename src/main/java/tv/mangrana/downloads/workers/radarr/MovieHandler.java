@@ -1,52 +1,66 @@
 package tv.mangrana.downloads.workers.radarr;
 
 import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.downloads.workers.common.ClientsRegistry;
 import tv.mangrana.downloads.workers.common.ElementHandler;
 import tv.mangrana.downloads.workers.common.RetryEngine;
 import tv.mangrana.exception.IncorrectWorkingReferencesException;
 import tv.mangrana.exception.NoElementFoundException;
 import tv.mangrana.exception.TooMuchTriesException;
+import tv.mangrana.google.api.client.CopyContext;
+import tv.mangrana.google.api.client.DriveMetadataCache;
 import tv.mangrana.radarr.api.client.gateway.RadarrApiGateway;
 import tv.mangrana.radarr.api.schema.movie.MovieResource;
 import tv.mangrana.utils.EasyLogger;
 import org.apache.commons.lang3.concurrent.CircuitBreakingException;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.DOWNLOADS_TEAM_DRIVE_ID;
+import static tv.mangrana.google.api.client.DriveRateLimiter.Priority.LOOKUP;
 import static tv.mangrana.google.api.client.gateway.GoogleDriveApiGateway.GoogleElementType.VIDEO;
 
 public class MovieHandler extends ElementHandler {
 
     RadarrApiGateway radarrApiGateway;
+    MovieRefresher movieRefresher;
 
-    public MovieHandler(EasyLogger logger, ConfigFileLoader configFileLoader) throws IOException {
-        super(logger, configFileLoader);
-        radarrApiGateway = new RadarrApiGateway(configFileLoader);
+    public MovieHandler(EasyLogger logger, ConfigFileLoader configFileLoader, ClientsRegistry clients) throws IOException {
+        super(logger, configFileLoader, clients);
+        radarrApiGateway = clients.radarrApiGateway();
+        movieRefresher = clients.movieRefresher();
     }
 
-    public void handle() throws NoElementFoundException, IncorrectWorkingReferencesException, TooMuchTriesException, IOException {
-        handle(true);
+    public CompletableFuture<Void> handle() {
+        return handle(true);
     }
 
-    public void handle(boolean waitUntilExists) throws IncorrectWorkingReferencesException, NoElementFoundException, TooMuchTriesException, IOException {
+    public CompletableFuture<Void> handle(boolean waitUntilExists) {
         if (!initiated) throw new CircuitBreakingException("initValues method execution is needed first");
-        if (waitUntilExists) copyService.setRetryEngine(new RetryEngine<>(
-                "MovieOnGoogle",
-                googleWaitInterval,
-                this::log)
-        );
-        MovieResource movie = radarrApiGateway.getMovieById(appElementId);
-        copyService.copyMovieFile(elementName, movie.getPath());
-        //TODO call AfterFileBotCarer
+        CopyContext copyContext = waitUntilExists
+                ? CopyContext.retryingWith(new RetryEngine<>(
+                        "MovieOnGoogle",
+                        retryPolicy("MovieOnGoogle", googleWaitInterval),
+                        this::log))
+                : CopyContext.withoutRetries();
+        CopyContext trackedContext = tracked(copyContext);
+        return copyService.awaitDownloadedVideoFile(elementName, trackedContext)
+                .thenAccept(failingWith(downloadedFile -> {
+                    MovieResource movie = radarrApiGateway.getMovieById(appElementId);
+                    copyService.copyMovieFile(downloadedFile, movie.getPath(), trackedContext);
+                    movieRefresher.refreshMovieInRadarrAndPlex(movie);
+                }));
     }
 
     public void crashHandle () throws IncorrectWorkingReferencesException, TooMuchTriesException, IOException, NoElementFoundException {
         try {
-            googleDriveApiGateway.lookupElementByName(elementName, VIDEO, configFileLoader.getConfig(DOWNLOADS_TEAM_DRIVE_ID));
+            String downloadsTeamDriveId = configFileLoader.getConfig(DOWNLOADS_TEAM_DRIVE_ID);
+            metadataCache.get(DriveMetadataCache.byName(elementName, VIDEO, downloadsTeamDriveId),
+                    () -> driveRateLimiter.call("lookupElementByName", LOOKUP, () -> googleDriveApiGateway.lookupElementByName(elementName, VIDEO, downloadsTeamDriveId)));
         } catch (NoElementFoundException e) {
             throw new NoElementFoundException("episode not downloaded yet");
         }
-        handle(false);
+        awaitHandled(handle(false));
     }
 }
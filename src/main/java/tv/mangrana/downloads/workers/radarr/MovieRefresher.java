@@ -0,0 +1,38 @@
+package tv.mangrana.downloads.workers.radarr;
+
+import tv.mangrana.downloads.workers.common.RefreshCoalescer;
+import tv.mangrana.plex.url.PlexCommandLauncher;
+import tv.mangrana.radarr.api.client.gateway.RadarrApiGateway;
+import tv.mangrana.radarr.api.schema.movie.MovieResource;
+import tv.mangrana.utils.Output;
+
+public class MovieRefresher {
+
+    RadarrApiGateway radarrApiGateway;
+    PlexCommandLauncher plexCommander;
+    RefreshCoalescer refreshCoalescer;
+
+    public MovieRefresher (RadarrApiGateway radarrApiGateway, PlexCommandLauncher plexCommander, RefreshCoalescer refreshCoalescer) {
+        this.radarrApiGateway = radarrApiGateway;
+        this.plexCommander = plexCommander;
+        this.refreshCoalescer = refreshCoalescer;
+    }
+
+    /**
+     * Asks Radarr to rescan the movie and Plex to scan only the movie folder, coalesced within the refresh window.
+     */
+    public void refreshMovieInRadarrAndPlex(MovieResource movie) {
+        refreshCoalescer.request("radarr", String.valueOf(movie.getId()), () -> refreshMovie(movie));
+        refreshCoalescer.request("plex", movie.getPath(), () -> plexCommander.scanByPath(movie.getPath()));
+    }
+
+    private void refreshMovie(MovieResource movie) {
+        try {
+            radarrApiGateway.refreshMovie(movie.getId());
+        } catch (Exception e) {
+            Output.log("could have not refreshed the movie {0}-{2} because of unexpected error {1}. Stacktrace will be printed", movie.getId(), movie.getTitle(), e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -1,52 +1,64 @@
 package tv.mangrana.downloads.workers.sonarr;
 
 import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.downloads.workers.common.ClientsRegistry;
 import tv.mangrana.downloads.workers.common.RetryEngine;
 import tv.mangrana.exception.IncorrectWorkingReferencesException;
 import tv.mangrana.exception.NoElementFoundException;
 import tv.mangrana.exception.TooMuchTriesException;
+import tv.mangrana.google.api.client.CopyContext;
+import tv.mangrana.google.api.client.DriveMetadataCache;
 import tv.mangrana.sonarr.api.schema.series.SonarrSerie;
 import tv.mangrana.utils.EasyLogger;
 import org.apache.commons.lang3.concurrent.CircuitBreakingException;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.DOWNLOADS_TEAM_DRIVE_ID;
+import static tv.mangrana.google.api.client.DriveRateLimiter.Priority.LOOKUP;
 import static tv.mangrana.google.api.client.gateway.GoogleDriveApiGateway.GoogleElementType.VIDEO;
 import static tv.mangrana.utils.StringCaptor.getSeasonFolderNameFromEpisode;
 
 public class EpisodeHandler extends SonarrElementHandler {
 
-    public EpisodeHandler(EasyLogger logger, ConfigFileLoader configFileLoader) throws IOException {
-        super(logger, configFileLoader);
+    public EpisodeHandler(EasyLogger logger, ConfigFileLoader configFileLoader, ClientsRegistry clients) throws IOException {
+        super(logger, configFileLoader, clients);
     }
 
-    public void handle() throws NoElementFoundException, IncorrectWorkingReferencesException, TooMuchTriesException, IOException {
-        handle(true);
+    public CompletableFuture<Void> handle() {
+        return handle(true);
     }
 
-    public void handle(boolean waitUntilExists) throws IncorrectWorkingReferencesException, NoElementFoundException, TooMuchTriesException, IOException {
+    public CompletableFuture<Void> handle(boolean waitUntilExists) {
         if (!initiated) throw new CircuitBreakingException("initValues method execution is needed first");
-        if (waitUntilExists) copyService.setRetryEngine(new RetryEngine<>(
-                "EpisodeOnGoogle",
-                googleWaitInterval /2,
-                this::log)
-        );
-        SonarrSerie serie = sonarrApiGateway.getSerieById(appElementId);
-        if (Objects.isNull(serie)) return;
-        String seasonFolderName = getSeasonFolderNameFromEpisode(title);
-        copyService.copyEpisodeFromDownloadToItsLocation(elementName, serie.getPath(), seasonFolderName);
-        serieRefresher.refreshSerieInSonarrAndPlex(serie);
+        CopyContext copyContext = waitUntilExists
+                ? CopyContext.retryingWith(new RetryEngine<>(
+                        "EpisodeOnGoogle",
+                        retryPolicy("EpisodeOnGoogle", googleWaitInterval /2),
+                        this::log))
+                : CopyContext.withoutRetries();
+        CopyContext trackedContext = tracked(copyContext);
+        return copyService.awaitDownloadedVideoFile(elementName, trackedContext)
+                .thenAccept(failingWith(downloadedFile -> {
+                    SonarrSerie serie = sonarrApiGateway.getSerieById(appElementId);
+                    if (Objects.isNull(serie)) return;
+                    String seasonFolderName = getSeasonFolderNameFromEpisode(title);
+                    copyService.copyEpisodeFromDownloadToItsLocation(downloadedFile, serie.getPath(), seasonFolderName, trackedContext);
+                    serieRefresher.refreshSerieInSonarrAndPlex(serie);
+                }));
     }
 
     public void crashHandle () throws IncorrectWorkingReferencesException, TooMuchTriesException, IOException, NoElementFoundException {
         try {
-            googleDriveApiGateway.lookupElementByName(elementName, VIDEO, configFileLoader.getConfig(DOWNLOADS_TEAM_DRIVE_ID));
+            String downloadsTeamDriveId = configFileLoader.getConfig(DOWNLOADS_TEAM_DRIVE_ID);
+            metadataCache.get(DriveMetadataCache.byName(elementName, VIDEO, downloadsTeamDriveId),
+                    () -> driveRateLimiter.call("lookupElementByName", LOOKUP, () -> googleDriveApiGateway.lookupElementByName(elementName, VIDEO, downloadsTeamDriveId)));
         } catch (NoElementFoundException e) {
             throw new NoElementFoundException("episode not downloaded yet");
         }
-        handle(false);
+        awaitHandled(handle(false));
     }
 
 }
@@ -1,22 +1,28 @@
 package tv.mangrana.downloads.workers.sonarr;
 
 import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.downloads.workers.common.ClientsRegistry;
 import tv.mangrana.downloads.workers.common.RetryEngine;
 import tv.mangrana.exception.IncorrectWorkingReferencesException;
 import tv.mangrana.exception.NoElementFoundException;
 import tv.mangrana.exception.TooMuchTriesException;
+import tv.mangrana.google.api.client.CopyContext;
+import tv.mangrana.google.api.client.DriveMetadataCache;
 import tv.mangrana.sonarr.api.schema.series.SonarrSerie;
 import tv.mangrana.utils.EasyLogger;
 import com.google.api.services.drive.model.File;
 import org.apache.commons.lang3.concurrent.CircuitBreakingException;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.CHECK_EPISODE_FILES_NUMBER_UPLOADED;
 import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.DOWNLOADS_SERIES_FOLDER_ID;
+import static tv.mangrana.google.api.client.DriveRateLimiter.Priority.LOOKUP;
 import static tv.mangrana.utils.Output.msg;
 import static tv.mangrana.utils.StringCaptor.getSeasonFolderNameFromSeason;
 
@@ -24,8 +30,8 @@ public class SeasonHandler extends SonarrElementHandler {
 
     private int episodeCount;
 
-    public SeasonHandler(EasyLogger logger, ConfigFileLoader configFileLoader) throws IOException {
-        super(logger, configFileLoader);
+    public SeasonHandler(EasyLogger logger, ConfigFileLoader configFileLoader, ClientsRegistry clients) throws IOException {
+        super(logger, configFileLoader, clients);
     }
 
     public SeasonHandler initValues (String title, String elementName, int serieId, int episodeCount){
@@ -33,51 +39,58 @@ public class SeasonHandler extends SonarrElementHandler {
         return (SeasonHandler) super.initValues(title, elementName, serieId);
     }
 
-    public void handle() throws NoElementFoundException, IncorrectWorkingReferencesException, TooMuchTriesException, IOException {
-        handle(true);
+    public CompletableFuture<Void> handle() {
+        return handle(true);
     }
 
-    public void handle(boolean waitUntilExists) throws IncorrectWorkingReferencesException, NoElementFoundException, TooMuchTriesException, IOException {
+    public CompletableFuture<Void> handle(boolean waitUntilExists) {
         if (!initiated) throw new CircuitBreakingException("initValues method execution is needed first");
+        CopyContext copyContext = CopyContext.withoutRetries();
         if (waitUntilExists) {
-            Function<File, List<File>> childrenRetriever = file ->
-                    googleDriveApiGateway.getChildrenFromParent(file, false);
+            Function<File, Iterator<File>> childrenIterator = childrenLister::iterate;
             Function<File, Boolean> fileNameConstraint = file -> !file.getName().endsWith(".part");
             RetryEngine<File> retryer = null;
             if (Boolean.parseBoolean(configFileLoader.getConfig(CHECK_EPISODE_FILES_NUMBER_UPLOADED))) {
                 retryer = new RetryEngine<>(
                         "SeasonOnGoogle",
-                        googleWaitInterval,
-                        new RetryEngine.ChildrenRequirements<>(episodeCount, childrenRetriever, fileNameConstraint),
+                        retryPolicy("SeasonOnGoogle", googleWaitInterval),
+                        RetryEngine.ChildrenRequirements.streaming(episodeCount, childrenIterator, fileNameConstraint),
                         this::log
                 );
             } else {
                 retryer = new RetryEngine<>(
                         "SeasonOnGoogle",
-                        googleWaitInterval,
+                        retryPolicy("SeasonOnGoogle", googleWaitInterval),
                         this::log
                 );
             }
-            copyService.setRetryEngine(retryer);
+            copyContext = CopyContext.retryingWith(retryer);
         }
 
-        SonarrSerie serie = sonarrApiGateway.getSerieById(appElementId);
-        if (Objects.isNull(serie)) throw new NoElementFoundException(msg("Could not found serie with id {0} in Sonarr", String.valueOf(appElementId)));
-        String seasonFolderName = getSeasonFolderNameFromSeason(title);
-        copyService.copySeasonFromDownloadToItsLocation(elementName, serie.getPath(), seasonFolderName);
-        serieRefresher.refreshSerieInSonarrAndPlex(serie);
+        CopyContext trackedContext = tracked(copyContext);
+        return copyService.awaitDownloadedSeasonFolder(elementName, trackedContext)
+                .thenAccept(failingWith(downloadedSeasonFolder -> {
+                    SonarrSerie serie = sonarrApiGateway.getSerieById(appElementId);
+                    if (Objects.isNull(serie)) throw new NoElementFoundException(msg("Could not found serie with id {0} in Sonarr", String.valueOf(appElementId)));
+                    String seasonFolderName = getSeasonFolderNameFromSeason(title);
+                    copyService.copySeasonFromDownloadToItsLocation(downloadedSeasonFolder, serie.getPath(), seasonFolderName, trackedContext);
+                    serieRefresher.refreshSerieInSonarrAndPlex(serie);
+                }));
     }
 
     public void crashHandle () throws NoElementFoundException, IncorrectWorkingReferencesException, TooMuchTriesException, IOException {
         try {
-            File parentFolder =  googleDriveApiGateway.lookupElementById(configFileLoader.getConfig(DOWNLOADS_SERIES_FOLDER_ID));
-            File season = googleDriveApiGateway.getChildFromParentByName(elementName, parentFolder, true);
-            List<File> episodes = googleDriveApiGateway.getChildrenFromParent(season, false);
+            String downloadsSeriesFolderId = configFileLoader.getConfig(DOWNLOADS_SERIES_FOLDER_ID);
+            File parentFolder = metadataCache.get(DriveMetadataCache.byId(downloadsSeriesFolderId),
+                    () -> driveRateLimiter.call("lookupElementById", LOOKUP, () -> googleDriveApiGateway.lookupElementById(downloadsSeriesFolderId)));
+            File season = metadataCache.get(DriveMetadataCache.childByName(elementName, parentFolder.getId(), true),
+                    () -> driveRateLimiter.call("getChildFromParentByName", LOOKUP, () -> googleDriveApiGateway.getChildFromParentByName(elementName, parentFolder, true)));
+            List<File> episodes = childrenLister.list(season);
             if (episodes.size() < episodeCount) throw new NoElementFoundException(msg("some episode is missing: expected {0}, got {1}", episodeCount, episodes.size()));
         } catch (Exception e) {
             throw new NoElementFoundException("season not downloaded yet");
         }
-        handle(false);
+        awaitHandled(handle(false));
     }
 
 }
@@ -1,6 +1,6 @@
 package tv.mangrana.downloads.workers.sonarr;
 
-import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.downloads.workers.common.RefreshCoalescer;
 import tv.mangrana.plex.url.PlexCommandLauncher;
 import tv.mangrana.sonarr.api.client.gateway.SonarrApiGateway;
 import tv.mangrana.sonarr.api.schema.series.SonarrSerie;
@@ -10,27 +10,41 @@ public class SerieRefresher {
 
     SonarrApiGateway sonarrApiGateway;
     PlexCommandLauncher plexCommander;
+    RefreshCoalescer refreshCoalescer;
 
-    public SerieRefresher (ConfigFileLoader configFileLoader) {
-        sonarrApiGateway = new SonarrApiGateway(configFileLoader);
-        plexCommander = new PlexCommandLauncher(configFileLoader);
+    public SerieRefresher (SonarrApiGateway sonarrApiGateway, PlexCommandLauncher plexCommander, RefreshCoalescer refreshCoalescer) {
+        this.sonarrApiGateway = sonarrApiGateway;
+        this.plexCommander = plexCommander;
+        this.refreshCoalescer = refreshCoalescer;
     }
 
+    /**
+     * The queue element is deleted right away, while the Sonarr refresh and the Plex scan are coalesced
+     * with the ones asked for the same serie and path within the refresh window.
+     */
     public void refreshSerieInSonarrAndPlex(SonarrSerie serie, Integer queueElementId) {
-        try {
-            sonarrApiGateway.refreshSerie(serie.getId());
-            if (queueElementId != null) {
+        if (queueElementId != null) {
+            try {
                 sonarrApiGateway.deleteQueueElement(queueElementId);
+            } catch (Exception e) {
+                Output.log("could have not deleted the queue element {0} of the serie {1} because of unexpected error {2}", queueElementId, serie.getTitle(), e.getMessage());
             }
-        } catch (Exception e) {
-            Output.log("could have not refreshed the serie {0}-{2} because of unexpected error {1}. Stacktrace will be printed", serie.getId(), serie.getTitle(), e.getMessage());
-            e.printStackTrace();
         }
-        plexCommander.scanByPath(serie.getPath());
+        refreshCoalescer.request("sonarr", String.valueOf(serie.getId()), () -> refreshSerie(serie));
+        refreshCoalescer.request("plex", serie.getPath(), () -> plexCommander.scanByPath(serie.getPath()));
     }
 
     public void refreshSerieInSonarrAndPlex(SonarrSerie serie) {
         refreshSerieInSonarrAndPlex(serie, null);
     }
 
+    private void refreshSerie(SonarrSerie serie) {
+        try {
+            sonarrApiGateway.refreshSerie(serie.getId());
+        } catch (Exception e) {
+            Output.log("could have not refreshed the serie {0}-{2} because of unexpected error {1}. Stacktrace will be printed", serie.getId(), serie.getTitle(), e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
 }
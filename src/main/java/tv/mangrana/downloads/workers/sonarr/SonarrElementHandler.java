@@ -1,6 +1,7 @@
 package tv.mangrana.downloads.workers.sonarr;
 
 import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.downloads.workers.common.ClientsRegistry;
 import tv.mangrana.downloads.workers.common.ElementHandler;
 import tv.mangrana.sonarr.api.client.gateway.SonarrApiGateway;
 import tv.mangrana.utils.EasyLogger;
@@ -12,10 +13,10 @@ public abstract class SonarrElementHandler extends ElementHandler {
     protected final SerieRefresher serieRefresher;
     protected final SonarrApiGateway sonarrApiGateway;
 
-    public SonarrElementHandler(EasyLogger logger, ConfigFileLoader configFileLoader) throws IOException {
-        super(logger, configFileLoader);
-        this.sonarrApiGateway = new SonarrApiGateway(configFileLoader);
-        this.serieRefresher = new SerieRefresher(configFileLoader);
+    public SonarrElementHandler(EasyLogger logger, ConfigFileLoader configFileLoader, ClientsRegistry clients) throws IOException {
+        super(logger, configFileLoader, clients);
+        this.sonarrApiGateway = clients.sonarrApiGateway();
+        this.serieRefresher = clients.serieRefresher();
     }
 
 }
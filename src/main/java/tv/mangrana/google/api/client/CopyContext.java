@@ -0,0 +1,75 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.services.drive.model.File;
+import tv.mangrana.downloads.workers.common.RetryEngine;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Per-job settings of a copy, so that the shared {@link RemoteCopyService} keeps no job state.
+ * It also carries the Drive ids the job already resolved in a previous run, and where to report the newly resolved ones.
+ */
+public class CopyContext {
+
+    public static final String DOWNLOADED_ELEMENT = "downloaded_element";
+    public static final String DESTINATION_FOLDER = "destination_folder";
+    private static final String COPIED_PREFIX = "copied:";
+
+    private final RetryEngine<File> retryEngine;
+    private final Map<String, String> knownDriveIds;
+    private final BiConsumer<String, String> driveIdRecorder;
+
+    private CopyContext(RetryEngine<File> retryEngine, Map<String, String> knownDriveIds, BiConsumer<String, String> driveIdRecorder) {
+        this.retryEngine = retryEngine;
+        this.knownDriveIds = knownDriveIds;
+        this.driveIdRecorder = driveIdRecorder;
+    }
+
+    public static CopyContext withoutRetries() {
+        return new CopyContext(null, Collections.emptyMap(), null);
+    }
+
+    public static CopyContext retryingWith(RetryEngine<File> retryEngine) {
+        return new CopyContext(retryEngine, Collections.emptyMap(), null);
+    }
+
+    public CopyContext trackingDriveIds(Map<String, String> knownDriveIds, BiConsumer<String, String> driveIdRecorder) {
+        return new CopyContext(retryEngine,
+                Objects.isNull(knownDriveIds) ? Collections.emptyMap() : knownDriveIds,
+                driveIdRecorder);
+    }
+
+    public RetryEngine<File> getRetryEngine() {
+        return retryEngine;
+    }
+
+    /**
+     * @return the Drive id resolved in a previous run for the given role, or null
+     */
+    public String knownDriveId(String role) {
+        return knownDriveIds.get(role);
+    }
+
+    /**
+     * @return whether a previous run of the job already copied the source file to the destination folder
+     */
+    public boolean isAlreadyCopied(File source, String destinationFolderId) {
+        return Objects.nonNull(destinationFolderId) && destinationFolderId.equals(knownDriveIds.get(COPIED_PREFIX + source.getId()));
+    }
+
+    void copied(File source, String destinationFolderId) {
+        if (Objects.nonNull(driveIdRecorder) && Objects.nonNull(source.getId())) {
+            driveIdRecorder.accept(COPIED_PREFIX + source.getId(), destinationFolderId);
+        }
+    }
+
+    void resolved(String role, File element) {
+        if (Objects.nonNull(driveIdRecorder) && Objects.nonNull(element) && Objects.nonNull(element.getId())) {
+            driveIdRecorder.accept(role, element.getId());
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.services.drive.model.File;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Files already present in a destination folder, indexed by name, so a copy can skip the source files
+ * that were copied before. Size and md5 are compared only when both sides have them.
+ */
+class DestinationDiff {
+
+    private final Map<String, List<File>> destinationByName = new HashMap<>();
+
+    private DestinationDiff(List<File> destinationChildren) {
+        for (File destinationFile : destinationChildren) {
+            if (Objects.isNull(destinationFile.getName()) || Boolean.TRUE.equals(destinationFile.getTrashed())) continue;
+            destinationByName.computeIfAbsent(destinationFile.getName(), name -> new ArrayList<>()).add(destinationFile);
+        }
+    }
+
+    static DestinationDiff of(List<File> destinationChildren) {
+        return new DestinationDiff(Objects.isNull(destinationChildren) ? Collections.emptyList() : destinationChildren);
+    }
+
+    static DestinationDiff empty() {
+        return of(Collections.emptyList());
+    }
+
+    boolean isPresent(File source) {
+        List<File> sameName = destinationByName.get(source.getName());
+        if (Objects.isNull(sameName)) return false;
+        for (File destinationFile : sameName) {
+            if (sameWhenKnown(source.getSize(), destinationFile.getSize())
+                    && sameWhenKnown(source.getMd5Checksum(), destinationFile.getMd5Checksum())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return destinationByName.size();
+    }
+
+    private static boolean sameWhenKnown(Object source, Object destination) {
+        return Objects.isNull(source) || Objects.isNull(destination) || source.equals(destination);
+    }
+
+}
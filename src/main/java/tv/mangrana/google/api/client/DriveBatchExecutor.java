@@ -0,0 +1,192 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import com.google.api.services.drive.model.FileList;
+import tv.mangrana.utils.EasyLogger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Groups Drive calls into multipart batch requests (up to {@link #DRIVE_BATCH_LIMIT} calls per HTTP request).
+ */
+public class DriveBatchExecutor {
+
+    public static final int DRIVE_BATCH_LIMIT = 100;
+    private static final String FOLDER_MIME_TYPE = "application/vnd.google-apps.folder";
+
+    private final EasyLogger logger;
+    private final Drive drive;
+    private final int batchSize;
+    private final DriveRateLimiter rateLimiter;
+    private final AtomicLong batchRequestsSent = new AtomicLong();
+    private final AtomicLong batchedCalls = new AtomicLong();
+
+    public DriveBatchExecutor(Drive drive) {
+        this(drive, DRIVE_BATCH_LIMIT);
+    }
+
+    public DriveBatchExecutor(Drive drive, int batchSize) {
+        this(drive, batchSize, DriveRateLimiter.unlimited());
+    }
+
+    /**
+     * @param rateLimiter every call of a batch takes its own permit, as Drive counts them one by one against the quota
+     */
+    public DriveBatchExecutor(Drive drive, int batchSize, DriveRateLimiter rateLimiter) {
+        this.logger = new EasyLogger("DriveBatch");
+        this.drive = drive;
+        this.batchSize = Math.min(Math.max(1, batchSize), DRIVE_BATCH_LIMIT);
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * @return the files that could not be copied, so the caller can retry them one by one
+     */
+    public List<File> copyFiles(List<File> files, String destinationFolderId, SeasonCopyReport report) {
+        List<File> failed = new ArrayList<>();
+        for (List<File> chunk : chunks(files)) {
+            Set<String> settled = new HashSet<>();
+            try {
+                BatchRequest batch = drive.batch();
+                for (File file : chunk) {
+                    File copyMetadata = new File()
+                            .setName(file.getName())
+                            .setParents(Collections.singletonList(destinationFolderId));
+                    drive.files().copy(file.getId(), copyMetadata)
+                            .setSupportsAllDrives(true)
+                            .setFields("id, name")
+                            .queue(batch, new JsonBatchCallback<File>() {
+                                @Override
+                                public void onSuccess(File copy, HttpHeaders responseHeaders) {
+                                    settled.add(file.getId());
+                                    report.copied(file.getName());
+                                    logger.nLog("Episode file <{0}> has been successfully copied (batched)", file.getName());
+                                }
+                                @Override
+                                public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                                    settled.add(file.getId());
+                                    failed.add(file);
+                                    logger.nLog("batched copy of <{0}> failed: {1} {2}", file.getName(), error.getCode(), error.getMessage());
+                                }
+                            });
+                }
+                executeBatch(batch, chunk.size(), DriveRateLimiter.Priority.COPY);
+            } catch (IOException e) {
+                logger.nHLog("batch copy request failed ({0}), its pending files will be copied one by one", e.getMessage());
+                chunk.stream()
+                        .filter(file -> !settled.contains(file.getId()))
+                        .forEach(failed::add);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Outcome of a batched folder lookup, telling apart the names Drive answered as missing from the ones whose
+     * sub-request failed (rate limit, 5xx...), which are unknown and must not be taken as missing.
+     */
+    public static class FolderLookup {
+        private final Map<String, File> found = new HashMap<>();
+        private final Set<String> failed = new HashSet<>();
+
+        public File get(String folderName) {
+            return found.get(folderName);
+        }
+
+        /**
+         * @return whether the sub-request for the name succeeded and Drive has no such folder
+         */
+        public boolean isMissing(String folderName) {
+            return !found.containsKey(folderName) && !failed.contains(folderName);
+        }
+
+        public Set<String> getFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * Looks up several folders by name inside a team drive with a single round trip per chunk.
+     */
+    public FolderLookup lookupFoldersByName(Collection<String> folderNames, String teamDriveId) throws IOException {
+        FolderLookup lookup = new FolderLookup();
+        for (List<String> chunk : chunks(new ArrayList<>(new HashSet<>(folderNames)))) {
+            BatchRequest batch = drive.batch();
+            for (String folderName : chunk) {
+                drive.files().list()
+                        .setQ(folderByNameQuery(folderName))
+                        .setCorpora("drive")
+                        .setDriveId(teamDriveId)
+                        .setIncludeItemsFromAllDrives(true)
+                        .setSupportsAllDrives(true)
+                        .setFields("files(id, name, mimeType, parents)")
+                        .setPageSize(1)
+                        .queue(batch, new JsonBatchCallback<FileList>() {
+                            @Override
+                            public void onSuccess(FileList fileList, HttpHeaders responseHeaders) {
+                                if (fileList.getFiles() != null && !fileList.getFiles().isEmpty()) {
+                                    lookup.found.put(folderName, fileList.getFiles().get(0));
+                                }
+                            }
+                            @Override
+                            public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                                lookup.failed.add(folderName);
+                                logger.nLog("batched lookup of folder <{0}> failed: {1} {2}", folderName, error.getCode(), error.getMessage());
+                            }
+                        });
+            }
+            executeBatch(batch, chunk.size(), DriveRateLimiter.Priority.LOOKUP);
+        }
+        return lookup;
+    }
+
+    public long getBatchRequestsSent() {
+        return batchRequestsSent.get();
+    }
+
+    public long getBatchedCalls() {
+        return batchedCalls.get();
+    }
+
+    private void executeBatch(BatchRequest batch, int calls, DriveRateLimiter.Priority priority) throws IOException {
+        rateLimiter.acquire(priority, calls);
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            batch.execute();
+            outcome = "ok";
+        } finally {
+            DriveCallMetrics.observe("batch", start, outcome);
+        }
+        batchRequestsSent.incrementAndGet();
+        batchedCalls.addAndGet(calls);
+    }
+
+    private <T> List<List<T>> chunks(List<T> elements) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < elements.size(); i += batchSize) {
+            chunks.add(elements.subList(i, Math.min(i + batchSize, elements.size())));
+        }
+        return chunks;
+    }
+
+    static String folderByNameQuery(String folderName) {
+        String escapedName = folderName.replace("\\", "\\\\").replace("'", "\\'");
+        return "name = '" + escapedName + "' and mimeType = '" + FOLDER_MIME_TYPE + "' and trashed = false";
+    }
+
+}
@@ -0,0 +1,10 @@
+package tv.mangrana.google.api.client;
+
+import tv.mangrana.exception.NoElementFoundException;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface DriveCall<T> {
+    T execute() throws IOException, NoElementFoundException;
+}
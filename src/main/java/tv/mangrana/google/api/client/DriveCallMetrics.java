@@ -0,0 +1,42 @@
+package tv.mangrana.google.api.client;
+
+import tv.mangrana.exception.NoElementFoundException;
+import tv.mangrana.metrics.Counter;
+import tv.mangrana.metrics.Histogram;
+import tv.mangrana.metrics.MetricsRegistry;
+
+import java.io.IOException;
+
+/**
+ * Counts and times the Drive API calls per operation; a not found element is an outcome of its own, not an error.
+ */
+final class DriveCallMetrics {
+
+    private static final Histogram LATENCY = MetricsRegistry.get().histogram("adc_drive_call_seconds",
+            "Latency of the Google Drive API calls", Histogram.SECONDS_BUCKETS, "operation");
+    private static final Counter CALLS = MetricsRegistry.get().counter("adc_drive_calls_total",
+            "Google Drive API calls by operation and outcome", "operation", "outcome");
+
+    private DriveCallMetrics() {}
+
+    static <T> T timed(String operation, DriveCall<T> call) throws IOException, NoElementFoundException {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.execute();
+            outcome = "ok";
+            return result;
+        } catch (NoElementFoundException e) {
+            outcome = "not_found";
+            throw e;
+        } finally {
+            observe(operation, start, outcome);
+        }
+    }
+
+    static void observe(String operation, long startNanos, String outcome) {
+        LATENCY.observeNanosSince(startNanos, operation);
+        CALLS.inc(operation, outcome);
+    }
+
+}
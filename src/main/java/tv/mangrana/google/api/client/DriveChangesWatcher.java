@@ -0,0 +1,266 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.Change;
+import com.google.api.services.drive.model.ChangeList;
+import com.google.api.services.drive.model.File;
+import org.apache.commons.lang.StringUtils;
+import tv.mangrana.exception.NoElementFoundException;
+import tv.mangrana.utils.EasyLogger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single consumer of the Drive change feed of the downloads team drive. It indexes every file/folder that lands there
+ * and completes the futures of the jobs waiting for that name, so jobs don't have to poll Drive by themselves.
+ * The page token is persisted, so after a restart the feed is resumed instead of skipping what changed meanwhile.
+ */
+public class DriveChangesWatcher {
+
+    private static final int MAX_INDEXED_ELEMENTS = 5000;
+    private static final String FOLDER_MIME_TYPE = "application/vnd.google-apps.folder";
+    private static final String CHANGES_FIELDS =
+            "nextPageToken, newStartPageToken, changes(fileId, removed, file(id, name, mimeType, parents, trashed))";
+
+    private final EasyLogger logger;
+    private final DriveCall<Drive> driveProvider;
+    private final String driveId;
+    private final Path pageTokenFile;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private final DriveRateLimiter rateLimiter;
+
+    /** one registration per waiting job, so a job giving up doesn't drop the others waiting for the same name */
+    private final Map<String, List<CompletableFuture<File>>> waitingJobs = new ConcurrentHashMap<>();
+    private final Map<String, File> landedElements = new LinkedHashMap<String, File>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, File> eldest) {
+            return size() > MAX_INDEXED_ELEMENTS;
+        }
+    };
+    /** guards the page token; a lock and not a monitor because it is held during Drive calls made from job threads */
+    private final ReentrantLock feedLock = new ReentrantLock();
+    private String pageToken;
+    private ScheduledFuture<?> pollingTask;
+
+    public DriveChangesWatcher(DriveCall<Drive> driveProvider, String driveId, Path pageTokenFile,
+                               long intervalMillis, ScheduledExecutorService scheduler) {
+        this(driveProvider, driveId, pageTokenFile, intervalMillis, scheduler, DriveRateLimiter.unlimited());
+    }
+
+    public DriveChangesWatcher(DriveCall<Drive> driveProvider, String driveId, Path pageTokenFile,
+                               long intervalMillis, ScheduledExecutorService scheduler, DriveRateLimiter rateLimiter) {
+        this.logger = new EasyLogger("DriveChanges");
+        this.driveProvider = driveProvider;
+        this.driveId = driveId;
+        this.pageTokenFile = pageTokenFile;
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.scheduler = scheduler;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Registers the interest for an element of the downloads drive. The feed position is settled before returning,
+     * so the caller can do a direct lookup afterwards without missing an element landing in between.
+     */
+    public CompletableFuture<File> awaitElement(String name, boolean isFolder) throws IOException {
+        ensurePageToken();
+        String key = key(name, isFolder);
+        File landed;
+        synchronized (landedElements) {
+            landed = landedElements.get(key);
+        }
+        if (Objects.nonNull(landed)) {
+            return CompletableFuture.completedFuture(landed);
+        }
+        CompletableFuture<File> landedFuture = new CompletableFuture<>();
+        waitingJobs.compute(key, (k, registrations) -> {
+            List<CompletableFuture<File>> waiting = Objects.isNull(registrations) ? new CopyOnWriteArrayList<>() : registrations;
+            waiting.add(landedFuture);
+            return waiting;
+        });
+        ensurePolling();
+        return landedFuture;
+    }
+
+    /**
+     * To be called when the job stops waiting for its registration (found by other means, timed out...),
+     * so the feed stops being consumed on its behalf. Other jobs waiting for the same name keep their registration.
+     */
+    public void forget(String name, boolean isFolder, CompletableFuture<File> registration) {
+        waitingJobs.computeIfPresent(key(name, isFolder), (k, registrations) -> {
+            registrations.remove(registration);
+            return registrations.isEmpty() ? null : registrations;
+        });
+    }
+
+    public int getWaitingCount() {
+        return waitingJobs.size();
+    }
+
+    String getPageToken() {
+        feedLock.lock();
+        try {
+            return pageToken;
+        } finally {
+            feedLock.unlock();
+        }
+    }
+
+    private void ensurePageToken() throws IOException {
+        feedLock.lock();
+        try {
+            ensurePageTokenLocked();
+        } finally {
+            feedLock.unlock();
+        }
+    }
+
+    private void ensurePageTokenLocked() throws IOException {
+        if (Objects.nonNull(pageToken)) return;
+        if (Files.exists(pageTokenFile)) {
+            String persistedToken = new String(Files.readAllBytes(pageTokenFile), StandardCharsets.UTF_8).trim();
+            if (StringUtils.isNotEmpty(persistedToken)) {
+                pageToken = persistedToken;
+                logger.nLog("resuming the downloads drive change feed from the persisted page token");
+                return;
+            }
+        }
+        rateLimiter.acquire(DriveRateLimiter.Priority.LOOKUP);
+        pageToken = drive().changes().getStartPageToken()
+                .setDriveId(driveId)
+                .setSupportsAllDrives(true)
+                .execute()
+                .getStartPageToken();
+        persistPageToken();
+    }
+
+    private synchronized void ensurePolling() {
+        if (pollingTask == null) {
+            pollingTask = scheduler.scheduleWithFixedDelay(this::poll, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized boolean stopPollingIfIdle() {
+        if (waitingJobs.isEmpty() && pollingTask != null) {
+            pollingTask.cancel(false);
+            pollingTask = null;
+            return true;
+        }
+        return false;
+    }
+
+    private void poll() {
+        if (stopPollingIfIdle()) return;
+        try {
+            consumeChanges();
+        } catch (Exception e) {
+            logger.nLog("could not consume the downloads drive changes, will retry later: {0}", e.getMessage());
+        }
+    }
+
+    void consumeChanges() throws IOException {
+        feedLock.lock();
+        try {
+            consumeChangesLocked();
+        } finally {
+            feedLock.unlock();
+        }
+    }
+
+    private void consumeChangesLocked() throws IOException {
+        ensurePageTokenLocked();
+        int changesCount = 0;
+        int resolved = 0;
+        String currentToken = pageToken;
+        while (Objects.nonNull(currentToken)) {
+            long start = System.nanoTime();
+            String outcome = "error";
+            ChangeList changeList;
+            rateLimiter.acquire(DriveRateLimiter.Priority.LOOKUP);
+            try {
+                changeList = drive().changes().list(currentToken)
+                        .setDriveId(driveId)
+                        .setIncludeItemsFromAllDrives(true)
+                        .setSupportsAllDrives(true)
+                        .setFields(CHANGES_FIELDS)
+                        .execute();
+                outcome = "ok";
+            } finally {
+                DriveCallMetrics.observe("changesList", start, outcome);
+            }
+            if (Objects.nonNull(changeList.getChanges())) {
+                for (Change change : changeList.getChanges()) {
+                    changesCount++;
+                    if (indexChange(change)) resolved++;
+                }
+            }
+            if (Objects.nonNull(changeList.getNewStartPageToken())) {
+                pageToken = changeList.getNewStartPageToken();
+                currentToken = null;
+            } else {
+                pageToken = changeList.getNextPageToken();
+                currentToken = pageToken;
+            }
+            persistPageToken();
+        }
+        logger.nLogD("change feed consumed: changes={0}, resolved={1}, still waiting={2}",
+                changesCount, resolved, waitingJobs.size());
+    }
+
+    private boolean indexChange(Change change) {
+        File file = change.getFile();
+        if (Objects.isNull(file) || StringUtils.isEmpty(file.getName())) return false;
+        String key = key(file.getName(), FOLDER_MIME_TYPE.equals(file.getMimeType()));
+        if (Boolean.TRUE.equals(change.getRemoved()) || Boolean.TRUE.equals(file.getTrashed())) {
+            synchronized (landedElements) {
+                landedElements.remove(key);
+            }
+            return false;
+        }
+        synchronized (landedElements) {
+            landedElements.put(key, file);
+        }
+        List<CompletableFuture<File>> waiting = waitingJobs.remove(key);
+        if (Objects.nonNull(waiting)) {
+            waiting.forEach(waitingJob -> waitingJob.complete(file));
+            return true;
+        }
+        return false;
+    }
+
+    private void persistPageToken() throws IOException {
+        if (Objects.isNull(pageToken)) return;
+        Path tmpFile = pageTokenFile.resolveSibling(pageTokenFile.getFileName() + ".tmp");
+        Files.write(tmpFile, pageToken.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmpFile, pageTokenFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Drive drive() throws IOException {
+        try {
+            return driveProvider.execute();
+        } catch (NoElementFoundException e) {
+            throw new IOException("no Drive service available for the change feed", e);
+        }
+    }
+
+    private static String key(String name, boolean isFolder) {
+        return (isFolder ? "folder:" : "file:") + name;
+    }
+
+}
@@ -0,0 +1,112 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import com.google.api.services.drive.model.FileList;
+import tv.mangrana.exception.NoElementFoundException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Lists the children of a Drive folder page by page, asking only for the fields the copy and the retries look at.
+ * The next page is requested only when the caller iterates past the current one, so a check that is decided
+ * early (e.g. a .part file found) costs a single page. Subfolders (e.g. Subs) are left out, so they don't
+ * count as episodes.
+ */
+public class DriveChildrenLister {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    static final String CHILDREN_FIELDS = "nextPageToken, files(id, name, mimeType, size, md5Checksum)";
+    private static final String FOLDER_MIME_TYPE = "application/vnd.google-apps.folder";
+
+    private final DriveCall<Drive> driveProvider;
+    private final DriveRateLimiter rateLimiter;
+    private final int pageSize;
+
+    public DriveChildrenLister(DriveCall<Drive> driveProvider, DriveRateLimiter rateLimiter, int pageSize) {
+        this.driveProvider = driveProvider;
+        this.rateLimiter = rateLimiter;
+        this.pageSize = Math.min(Math.max(1, pageSize), 1000);
+    }
+
+    /**
+     * @return a lazy iterator over the non trashed, non folder children; a failed page request is thrown as {@link UncheckedIOException}
+     */
+    public Iterator<File> iterate(File parent) {
+        return new ChildrenIterator(parent.getId());
+    }
+
+    public List<File> list(File parent) throws IOException {
+        List<File> children = new ArrayList<>();
+        try {
+            iterate(parent).forEachRemaining(children::add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return children;
+    }
+
+    private FileList fetchPage(String parentId, String pageToken) throws IOException {
+        try {
+            return rateLimiter.call("listChildrenPage", DriveRateLimiter.Priority.LOOKUP, () -> driveProvider.execute().files().list()
+                    .setQ(childrenQuery(parentId))
+                    .setCorpora("allDrives")
+                    .setIncludeItemsFromAllDrives(true)
+                    .setSupportsAllDrives(true)
+                    .setFields(CHILDREN_FIELDS)
+                    .setPageSize(pageSize)
+                    .setPageToken(pageToken)
+                    .execute());
+        } catch (NoElementFoundException e) {
+            throw new IOException("no Drive service available to list children", e);
+        }
+    }
+
+    static String childrenQuery(String parentId) {
+        return "'" + parentId.replace("\\", "\\\\").replace("'", "\\'") + "' in parents and trashed = false"
+                + " and mimeType != '" + FOLDER_MIME_TYPE + "'";
+    }
+
+    private class ChildrenIterator implements Iterator<File> {
+        private final String parentId;
+        private Iterator<File> currentPage = Collections.emptyIterator();
+        private String nextPageToken;
+        private boolean lastPageFetched;
+
+        ChildrenIterator(String parentId) {
+            this.parentId = parentId;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentPage.hasNext() && !lastPageFetched) {
+                FileList page;
+                try {
+                    page = fetchPage(parentId, nextPageToken);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                currentPage = Objects.isNull(page.getFiles()) ? Collections.emptyIterator() : page.getFiles().stream()
+                        .filter(child -> !FOLDER_MIME_TYPE.equals(child.getMimeType()))
+                        .iterator();
+                nextPageToken = page.getNextPageToken();
+                lastPageFetched = Objects.isNull(nextPageToken);
+            }
+            return currentPage.hasNext();
+        }
+
+        @Override
+        public File next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return currentPage.next();
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.services.drive.model.File;
+import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.exception.NoElementFoundException;
+import tv.mangrana.google.api.client.gateway.GoogleDriveApiGateway.GoogleElementType;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.*;
+import static tv.mangrana.utils.Output.msg;
+
+/**
+ * Size-bounded cache of Drive lookups (name+parent or id -> File) shared by every handler.
+ * Elements not found are cached too, for a shorter time, so that concurrent polls for the same name don't repeat the call.
+ */
+public class DriveMetadataCache {
+
+    private final long ttlMillis;
+    private final long notFoundTtlMillis;
+    private final Map<String, CachedElement> elements;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong notFoundHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private static class CachedElement {
+        final File file;
+        final long expiresAt;
+        CachedElement(File file, long expiresAt) {
+            this.file = file;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static DriveMetadataCache fromConfig(ConfigFileLoader configFileLoader) {
+        return new DriveMetadataCache(
+                TimeUnit.MINUTES.toMillis(configFileLoader.getIntConfig(DRIVE_CACHE_TTL_MINUTES, 30)),
+                TimeUnit.SECONDS.toMillis(configFileLoader.getIntConfig(DRIVE_CACHE_NOT_FOUND_TTL_SECONDS, 60)),
+                configFileLoader.getIntConfig(DRIVE_CACHE_MAX_ENTRIES, 5000));
+    }
+
+    public DriveMetadataCache(long ttlMillis, long notFoundTtlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.notFoundTtlMillis = notFoundTtlMillis;
+        this.elements = new LinkedHashMap<String, CachedElement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedElement> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static String byName(String name, GoogleElementType type, String teamDriveId) {
+        return "name|" + type + "|" + teamDriveId + "|" + name;
+    }
+
+    public static String byId(String id) {
+        return "id|" + id;
+    }
+
+    public static String childByName(String name, String parentId, boolean isFolder) {
+        return "child|" + isFolder + "|" + parentId + "|" + name;
+    }
+
+    public File get(String key, DriveCall<File> loader) throws IOException, NoElementFoundException {
+        CachedElement cached = getValid(key);
+        if (cached != null) {
+            if (cached.file == null) {
+                notFoundHits.incrementAndGet();
+                throw new NoElementFoundException("element recently not found: " + key);
+            }
+            hits.incrementAndGet();
+            return cached.file;
+        }
+        misses.incrementAndGet();
+        try {
+            File file = loader.execute();
+            if (Objects.nonNull(file)) put(key, file);
+            return file;
+        } catch (NoElementFoundException e) {
+            notFound(key);
+            throw e;
+        }
+    }
+
+    public void put(String key, File file) {
+        store(key, new CachedElement(file, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public void notFound(String key) {
+        store(key, new CachedElement(null, System.currentTimeMillis() + notFoundTtlMillis));
+    }
+
+    public boolean contains(String key) {
+        return getValid(key) != null;
+    }
+
+    public synchronized void invalidate(String key) {
+        elements.remove(key);
+    }
+
+    public synchronized void clear() {
+        elements.clear();
+    }
+
+    private synchronized CachedElement getValid(String key) {
+        CachedElement cached = elements.get(key);
+        if (cached != null && cached.expiresAt < System.currentTimeMillis()) {
+            elements.remove(key);
+            return null;
+        }
+        return cached;
+    }
+
+    private synchronized void store(String key, CachedElement element) {
+        elements.put(key, element);
+    }
+
+    public synchronized int size() {
+        return elements.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getNotFoundHits() {
+        return notFoundHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public String getStats() {
+        return msg("entries={0}, hits={1}, notFoundHits={2}, misses={3}", size(), getHits(), getNotFoundHits(), getMisses());
+    }
+
+}
@@ -0,0 +1,189 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import org.apache.commons.lang.StringUtils;
+import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.exception.NoElementFoundException;
+import tv.mangrana.metrics.Counter;
+import tv.mangrana.metrics.Histogram;
+import tv.mangrana.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.*;
+
+/**
+ * Process-wide token bucket in front of the Google Drive API, shared by every job.
+ * Copies get the permits before the lookups that are polling for downloads, and a rate limit answer
+ * from Drive pauses every caller (for its Retry-After, or an exponential backoff) before retrying the call.
+ */
+public class DriveRateLimiter {
+
+    public enum Priority {COPY, LOOKUP}
+
+    private static final int DEFAULT_PERMITS_PER_SECOND = 10;
+    private static final int DEFAULT_BURST = 20;
+    private static final int DEFAULT_RATE_LIMIT_RETRIES = 6;
+    private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long LOOKUP_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final Set<String> RATE_LIMIT_REASONS = new HashSet<>(Arrays.asList("userRateLimitExceeded", "rateLimitExceeded"));
+
+    private static final Histogram THROTTLED = MetricsRegistry.get().histogram("adc_drive_throttled_seconds",
+            "Time the Drive API calls waited for a rate limiter permit", Histogram.SECONDS_BUCKETS, "priority");
+    private static final Counter RATE_LIMITED = MetricsRegistry.get().counter("adc_drive_rate_limited_total",
+            "Drive API calls answered with a rate limit error", "operation");
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final int maxRateLimitRetries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitsChanged = lock.newCondition();
+    private double availablePermits;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+    private int waitingCopies;
+
+    /**
+     * @param permitsPerSecond zero or less means no limit, though rate limit answers still pause the callers
+     */
+    public DriveRateLimiter(double permitsPerSecond, int burst, int maxRateLimitRetries) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.maxRateLimitRetries = Math.max(0, maxRateLimitRetries);
+        availablePermits = this.burst;
+        lastRefillNanos = System.nanoTime();
+        pausedUntilNanos = lastRefillNanos;
+    }
+
+    public static DriveRateLimiter fromConfig(ConfigFileLoader configFileLoader) {
+        return new DriveRateLimiter(
+                configFileLoader.getIntConfig(DRIVE_RATE_LIMIT_PER_SECOND, DEFAULT_PERMITS_PER_SECOND),
+                configFileLoader.getIntConfig(DRIVE_RATE_LIMIT_BURST, DEFAULT_BURST),
+                configFileLoader.getIntConfig(DRIVE_RATE_LIMIT_RETRIES, DEFAULT_RATE_LIMIT_RETRIES));
+    }
+
+    public static DriveRateLimiter unlimited() {
+        return new DriveRateLimiter(0, 1, 0);
+    }
+
+    /**
+     * Executes the call once a permit is available, retrying it while Drive answers that the rate limit is exceeded.
+     */
+    public <T> T call(String operation, Priority priority, DriveCall<T> call) throws IOException, NoElementFoundException {
+        for (int attempt = 0; ; attempt++) {
+            acquire(priority);
+            try {
+                return DriveCallMetrics.timed(operation, call);
+            } catch (GoogleJsonResponseException e) {
+                if (!isRateLimited(e) || attempt >= maxRateLimitRetries) throw e;
+                RATE_LIMITED.inc(operation);
+                pauseFor(retryDelayMillis(e, attempt));
+            }
+        }
+    }
+
+    public void acquire(Priority priority) {
+        acquire(priority, 1);
+    }
+
+    /**
+     * Blocks until the requested permits are available. Requests bigger than the burst are let through
+     * when the bucket is full, leaving it in debt. An interruption is kept as the thread status.
+     */
+    public void acquire(Priority priority, int permits) {
+        long start = System.nanoTime();
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            if (priority == Priority.COPY) waitingCopies++;
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    long waitNanos = pausedUntilNanos - now;
+                    if (waitNanos <= 0 && priority == Priority.LOOKUP && waitingCopies > 0) {
+                        waitNanos = LOOKUP_RECHECK_NANOS;
+                    } else if (waitNanos <= 0) {
+                        if (isUnlimited()) return;
+                        double needed = Math.min(permits, burst);
+                        if (availablePermits >= needed) {
+                            availablePermits -= permits;
+                            return;
+                        }
+                        waitNanos = (long) ((needed - availablePermits) / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+                    }
+                    try {
+                        permitsChanged.awaitNanos(Math.max(1, waitNanos));
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (priority == Priority.COPY) {
+                    waitingCopies--;
+                    permitsChanged.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+            THROTTLED.observeNanosSince(start, priority.name().toLowerCase());
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops handing permits to every caller for the given time, and empties the bucket so they don't burst back.
+     */
+    public void pauseFor(long millis) {
+        lock.lock();
+        try {
+            long resumeAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            if (resumeAt - pausedUntilNanos > 0) pausedUntilNanos = resumeAt;
+            availablePermits = Math.min(availablePermits, 0);
+            permitsChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isUnlimited() {
+        return permitsPerSecond <= 0;
+    }
+
+    private void refill(long now) {
+        if (!isUnlimited()) {
+            double elapsedSeconds = (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+            availablePermits = Math.min(burst, availablePermits + elapsedSeconds * permitsPerSecond);
+        }
+        lastRefillNanos = now;
+    }
+
+    static boolean isRateLimited(GoogleJsonResponseException e) {
+        if (e.getStatusCode() == 429) return true;
+        if (e.getStatusCode() != 403 || Objects.isNull(e.getDetails()) || Objects.isNull(e.getDetails().getErrors())) return false;
+        for (GoogleJsonError.ErrorInfo error : e.getDetails().getErrors()) {
+            if (RATE_LIMIT_REASONS.contains(error.getReason())) return true;
+        }
+        return false;
+    }
+
+    static long retryDelayMillis(GoogleJsonResponseException e, int attempt) {
+        String retryAfter = Objects.isNull(e.getHeaders()) ? null : e.getHeaders().getRetryAfter();
+        if (StringUtils.isNumeric(retryAfter) && StringUtils.isNotEmpty(retryAfter)) {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter));
+        }
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(attempt, 10));
+        return backoff + ThreadLocalRandom.current().nextLong(INITIAL_BACKOFF_MILLIS);
+    }
+
+}
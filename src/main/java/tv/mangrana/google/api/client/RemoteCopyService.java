@@ -1,24 +1,35 @@
 package tv.mangrana.google.api.client;
 
 import tv.mangrana.config.ConfigFileLoader;
-import tv.mangrana.downloads.workers.common.RetryEngine;
+import tv.mangrana.downloads.workers.common.SharedScheduler;
 import tv.mangrana.exception.NoElementFoundException;
-import tv.mangrana.exception.TooMuchTriesException;
 import tv.mangrana.google.api.client.gateway.GoogleDriveApiGateway;
 import tv.mangrana.utils.EasyLogger;
 import tv.mangrana.utils.PathUtils;
+import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.model.File;
 import org.apache.commons.lang.StringUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.*;
+import static tv.mangrana.google.api.client.DriveRateLimiter.Priority.COPY;
+import static tv.mangrana.google.api.client.DriveRateLimiter.Priority.LOOKUP;
 import static tv.mangrana.google.api.client.gateway.GoogleDriveApiGateway.GoogleElementType.FOLDER;
 import static tv.mangrana.google.api.client.gateway.GoogleDriveApiGateway.GoogleElementType.VIDEO;
 import static tv.mangrana.utils.Output.msg;
+import static tv.mangrana.utils.Waiter.waitSeconds;
 
 public class RemoteCopyService {
 
@@ -26,23 +37,68 @@ public class RemoteCopyService {
 
     ConfigFileLoader configFileLoader;
     GoogleDriveApiGateway googleDriveApiGateway;
-    RetryEngine<File> retryEngine;
+    DriveMetadataCache metadataCache;
+    private final DriveCall<Drive> driveServiceProvider;
+    private final DriveChangesWatcher changesWatcher;
+    private final DriveRateLimiter rateLimiter;
+    private final DriveChildrenLister childrenLister;
+    private final Executor copyExecutor;
+    private DriveBatchExecutor driveBatch;
 
     private static final int TOO_MUCH_RETRIES_THRESHOLD = 40;
+    private static final int EPISODE_COPY_RETRY_WAIT_SECONDS = 10;
+    private static final String FOLDER_MIME_TYPE = "application/vnd.google-apps.folder";
 
-    public RemoteCopyService(ConfigFileLoader configFileLoader) throws IOException {
+    public RemoteCopyService(ConfigFileLoader configFileLoader, GoogleDriveApiGateway googleDriveApiGateway,
+                             DriveMetadataCache metadataCache, DriveCall<Drive> driveServiceProvider,
+                             DriveChangesWatcher changesWatcher, DriveRateLimiter rateLimiter,
+                             DriveChildrenLister childrenLister, Executor copyExecutor) {
         this.logger = new EasyLogger("CopyService");
         this.configFileLoader = configFileLoader;
-        googleDriveApiGateway = new GoogleDriveApiGateway();
+        this.googleDriveApiGateway = googleDriveApiGateway;
+        this.metadataCache = metadataCache;
+        this.driveServiceProvider = driveServiceProvider;
+        this.changesWatcher = changesWatcher;
+        this.rateLimiter = rateLimiter;
+        this.childrenLister = childrenLister;
+        this.copyExecutor = copyExecutor;
     }
-    public void setRetryEngine(RetryEngine<File> retryEngine){
-        this.retryEngine = retryEngine;
+
+    private boolean isBatchingEnabled() {
+        return Boolean.parseBoolean(configFileLoader.getConfig(DRIVE_BATCH_REQUESTS));
     }
 
-    public void copyMovieFile(String downloadedFileName, String destinationFullPath) throws IOException, NoElementFoundException, TooMuchTriesException {
-        File downloadedFile = getDownloadedVideoFile(downloadedFileName);
-        File destinationFolder = getOrCreateMovieFolderByPath(destinationFullPath);
-        googleDriveApiGateway.copyFile(downloadedFile.getId(), destinationFolder.getId());
+    private synchronized DriveBatchExecutor getDriveBatch() throws IOException {
+        if (driveBatch == null) {
+            try {
+                driveBatch = new DriveBatchExecutor(driveServiceProvider.execute(), DriveBatchExecutor.DRIVE_BATCH_LIMIT, rateLimiter);
+            } catch (NoElementFoundException e) {
+                throw new IOException("no Drive service available for batch requests", e);
+            }
+        }
+        return driveBatch;
+    }
+
+    /**
+     * @param downloadedFile as given by {@link #awaitDownloadedVideoFile}
+     */
+    public void copyMovieFile(File downloadedFile, String destinationFullPath, CopyContext context) throws IOException, NoElementFoundException {
+        String downloadedFileName = downloadedFile.getName();
+        File destinationFolder = knownFolder(context);
+        if (Objects.isNull(destinationFolder)) {
+            destinationFolder = getOrCreateMovieFolderByPath(destinationFullPath);
+            context.resolved(CopyContext.DESTINATION_FOLDER, destinationFolder);
+        }
+        String destinationFolderId = destinationFolder.getId();
+        if (context.isAlreadyCopied(downloadedFile, destinationFolderId)) {
+            logger.nLog("Movie file <{0}> was already copied to <{1}> by a previous run", downloadedFileName, destinationFullPath);
+            return;
+        }
+        rateLimiter.call("copyFile", COPY, () -> {
+            googleDriveApiGateway.copyFile(downloadedFile.getId(), destinationFolderId);
+            return null;
+        });
+        context.copied(downloadedFile, destinationFolderId);
         logger.nLog("Movie file <{0}> has been successfully copied to <{1}> ( GDrive id: {2} )",
                 downloadedFileName, destinationFullPath, destinationFolder.getId());
     }
@@ -62,13 +118,18 @@ public class RemoteCopyService {
         }
     }
 
-    public void copySeasonFromDownloadToItsLocation(String downloadedFolderName, String destinationFullPath, String seasonFolderName) throws IOException, TooMuchTriesException, NoElementFoundException {
-        String destinationDescription = msg("<{0}/{1}>",destinationFullPath, seasonFolderName);
+    /**
+     * @return the downloaded season folder once it is on the downloads drive (and, with a retry engine, its episodes too)
+     */
+    public CompletableFuture<File> awaitDownloadedSeasonFolder(String downloadedFolderName, CopyContext context) {
+        String downloadsSeriesFolderId = configFileLoader.getConfig(DOWNLOADS_SERIES_FOLDER_ID);
         final int[] showedCount = {0};
         Supplier<File> getDownloadedSeasonFolder = () -> {
             try {
-                File parentFolder =  googleDriveApiGateway.lookupElementById(configFileLoader.getConfig(DOWNLOADS_SERIES_FOLDER_ID));
-                return googleDriveApiGateway.getChildFromParentByName(downloadedFolderName, parentFolder, true);
+                File parentFolder = metadataCache.get(DriveMetadataCache.byId(downloadsSeriesFolderId),
+                        () -> rateLimiter.call("lookupElementById", LOOKUP, () -> googleDriveApiGateway.lookupElementById(downloadsSeriesFolderId)));
+                return metadataCache.get(DriveMetadataCache.childByName(downloadedFolderName, parentFolder.getId(), true),
+                        () -> rateLimiter.call("getChildFromParentByName", LOOKUP, () -> googleDriveApiGateway.getChildFromParentByName(downloadedFolderName, parentFolder, true)));
             } catch (Exception e) {
                 if (showedCount[0] ==0)
                     logger.nLog("Could not find yet the folder <{0}>", downloadedFolderName);
@@ -76,34 +137,107 @@ public class RemoteCopyService {
                 return null;
             }
         };
-        File downloadedSeasonFolder = Objects.isNull(retryEngine) ? getDownloadedSeasonFolder.get() : retryEngine.tryUntilGotDesired(getDownloadedSeasonFolder, TOO_MUCH_RETRIES_THRESHOLD);
-        if (Objects.isNull(downloadedSeasonFolder))
-            throw new NoElementFoundException("SHOULD NOT HAPPEN! definitely, could not retrieve the downloaded folder "+ downloadedFolderName);
+        return getDownloadedElement(downloadedFolderName, true, getDownloadedSeasonFolder,
+                folder -> Objects.nonNull(folder.getParents()) && folder.getParents().contains(downloadsSeriesFolderId), context)
+                .thenApply(downloadedSeasonFolder -> requireFound(downloadedSeasonFolder,
+                        "SHOULD NOT HAPPEN! definitely, could not retrieve the downloaded folder "+ downloadedFolderName));
+    }
 
-        String destinationFolderName = PathUtils.getCurrentFromFullPath(destinationFullPath);
-        File destinationSerieFolder = getOrCreateSerieFolder(destinationFullPath, destinationFolderName);
-        File seasonFolder = getOrCreateSeasonFolder(seasonFolderName, destinationSerieFolder);
+    /**
+     * @param downloadedSeasonFolder as given by {@link #awaitDownloadedSeasonFolder}
+     */
+    public SeasonCopyReport copySeasonFromDownloadToItsLocation(File downloadedSeasonFolder, String destinationFullPath, String seasonFolderName, CopyContext context) throws IOException, NoElementFoundException {
+        String destinationDescription = msg("<{0}/{1}>",destinationFullPath, seasonFolderName);
+        File seasonFolder = getOrCreateSeasonFolder(destinationFullPath, seasonFolderName, context);
         logger.nLog("Going to copy all season''s episodes to <{0}> ( GDriveId: {1} )", destinationDescription, seasonFolder.getId());
-        List<File> seasonEpisodesGFiles = googleDriveApiGateway.getChildrenFromParent(downloadedSeasonFolder, false);
-        seasonEpisodesGFiles.forEach(episodeFile ->
-                copySeasonEpisode(episodeFile, seasonFolder.getId(), null));
+        List<File> seasonEpisodesGFiles = childrenLister.list(downloadedSeasonFolder);
+        DestinationDiff destinationDiff = listDestination(seasonFolder, destinationDescription);
+        SeasonCopyReport report = copySeasonEpisodes(seasonEpisodesGFiles, seasonFolder.getId(), destinationDiff, context);
+        if (report.hasFailures()) {
+            logger.nHLog("Season copy to {0} finished with failures: {1} - failed files: {2}",
+                    destinationDescription, report.summary(), report.getFailed());
+        } else {
+            logger.nLog("Season copy to {0} finished: {1}", destinationDescription, report.summary());
+        }
+        return report;
     }
 
-    public void copyEpisodeFromDownloadToItsLocation(String downloadedFileName, String destinationFullPath, String seasonFolderName) throws IOException, NoElementFoundException, TooMuchTriesException {
-        File downloadedFile = getDownloadedVideoFile(downloadedFileName);
+    /**
+     * Lists the destination season folder once, so a re-run copies only the episodes it is missing.
+     */
+    private DestinationDiff listDestination(File seasonFolder, String destinationDescription) {
+        try {
+            return DestinationDiff.of(childrenLister.list(seasonFolder));
+        } catch (IOException e) {
+            logger.nLog("could not list the destination {0} ({1}), every episode will be copied", destinationDescription, e.getMessage());
+            return DestinationDiff.empty();
+        }
+    }
 
-        String destinationSerieFolderName = PathUtils.getCurrentFromFullPath(destinationFullPath);
-        File destinationSerieFolder = getOrCreateSerieFolder(destinationFullPath, destinationSerieFolderName);
-        File seasonFolder = getOrCreateSeasonFolder(seasonFolderName, destinationSerieFolder);
+    private SeasonCopyReport copySeasonEpisodes(List<File> seasonEpisodesGFiles, String seasonFolderId, DestinationDiff destinationDiff, CopyContext context) {
+        SeasonCopyReport report = new SeasonCopyReport();
+        List<File> episodesToCopy = new ArrayList<>();
+        for (File episodeFile : seasonEpisodesGFiles) {
+            if (FOLDER_MIME_TYPE.equals(episodeFile.getMimeType()) || episodeFile.getName().endsWith(".part")) {
+                report.skipped(episodeFile.getName());
+            } else if (context.isAlreadyCopied(episodeFile, seasonFolderId) || destinationDiff.isPresent(episodeFile)) {
+                report.alreadyPresent(episodeFile.getName());
+            } else {
+                episodesToCopy.add(episodeFile);
+            }
+        }
+        if (!report.getAlreadyPresent().isEmpty()) {
+            logger.nLog("{0} episodes are already at the destination, going to copy the other {1}: {2}",
+                    report.getAlreadyPresent().size(), episodesToCopy.size(), report.getAlreadyPresent());
+        }
+        if (isBatchingEnabled() && episodesToCopy.size() > 1) {
+            try {
+                List<File> failedInBatch = getDriveBatch().copyFiles(episodesToCopy, seasonFolderId, report);
+                episodesToCopy.stream()
+                        .filter(episodeFile -> !failedInBatch.contains(episodeFile))
+                        .forEach(episodeFile -> context.copied(episodeFile, seasonFolderId));
+                episodesToCopy = failedInBatch;
+            } catch (IOException e) {
+                logger.nHLog("could not initialize the Drive batch client ({0}), going to copy one by one", e.getMessage());
+            }
+        }
+        if (configFileLoader.getIntConfig(SEASON_COPY_PARALLELISM, 1) <= 1 || episodesToCopy.size() <= 1) {
+            episodesToCopy.forEach(episodeFile ->
+                    copySeasonEpisode(episodeFile, seasonFolderId, null, report, context));
+            return report;
+        }
+        CompletableFuture.allOf(episodesToCopy.stream()
+                .map(episodeFile -> CompletableFuture.runAsync(() ->
+                        copySeasonEpisode(episodeFile, seasonFolderId, null, report, context), copyExecutor))
+                .toArray(CompletableFuture[]::new))
+                .join();
+        return report;
+    }
+
+    /**
+     * @param downloadedFile as given by {@link #awaitDownloadedVideoFile}
+     */
+    public void copyEpisodeFromDownloadToItsLocation(File downloadedFile, String destinationFullPath, String seasonFolderName, CopyContext context) throws IOException, NoElementFoundException {
+        String downloadedFileName = downloadedFile.getName();
+        File seasonFolder = getOrCreateSeasonFolder(destinationFullPath, seasonFolderName, context);
 
-        copySeasonEpisode(downloadedFile, seasonFolder.getId(), msg("<{0}/{1}>",destinationFullPath, seasonFolderName));
+        if (context.isAlreadyCopied(downloadedFile, seasonFolder.getId())) {
+            logger.nLog("Episode file <{0}> was already copied to <{1}/{2}> by a previous run", downloadedFileName, destinationFullPath, seasonFolderName);
+            return;
+        }
+        copySeasonEpisode(downloadedFile, seasonFolder.getId(), msg("<{0}/{1}>",destinationFullPath, seasonFolderName), new SeasonCopyReport(), context);
     }
 
-    private File getDownloadedVideoFile(String downloadedFileName) throws TooMuchTriesException, NoElementFoundException {
+    /**
+     * @return the downloaded video file once it is on the downloads drive
+     */
+    public CompletableFuture<File> awaitDownloadedVideoFile(String downloadedFileName, CopyContext context) {
         final int[] showedCount = {0};
         Supplier<File> getDownloadedEpisodeFile = () -> {
             try {
-                return googleDriveApiGateway.lookupElementByName(downloadedFileName, VIDEO, configFileLoader.getConfig(DOWNLOADS_TEAM_DRIVE_ID));
+                String downloadsTeamDriveId = configFileLoader.getConfig(DOWNLOADS_TEAM_DRIVE_ID);
+                return metadataCache.get(DriveMetadataCache.byName(downloadedFileName, VIDEO, downloadsTeamDriveId),
+                        () -> rateLimiter.call("lookupElementByName", LOOKUP, () -> googleDriveApiGateway.lookupElementByName(downloadedFileName, VIDEO, downloadsTeamDriveId)));
             } catch (Exception e) {
                 if (showedCount[0] ==0) {
                     logger.nLog("Could not find yet the file <{0}>", downloadedFileName);
@@ -112,60 +246,207 @@ public class RemoteCopyService {
                 return null;
             }
         };
-        File downloadedFile = Objects.isNull(retryEngine) ? getDownloadedEpisodeFile.get() : retryEngine.tryUntilGotDesired(getDownloadedEpisodeFile, TOO_MUCH_RETRIES_THRESHOLD);
-        if (Objects.isNull(downloadedFile)) {
-            throw new NoElementFoundException("SHOULD NOT HAPPEN! definitely, could not retrieve the video file "+ downloadedFileName);
+        return getDownloadedElement(downloadedFileName, false, getDownloadedEpisodeFile, file -> true, context)
+                .thenApply(downloadedFile -> requireFound(downloadedFile,
+                        "SHOULD NOT HAPPEN! definitely, could not retrieve the video file "+ downloadedFileName));
+    }
+
+    private static File requireFound(File downloadedElement, String notFoundMessage) {
+        if (Objects.isNull(downloadedElement)) {
+            throw new CompletionException(new NoElementFoundException(notFoundMessage));
         }
-        return downloadedFile;
+        return downloadedElement;
     }
 
-    private void copySeasonEpisode(File episodeFile, String destinationSerieFolder, String destinationDescription) {
-        String msgIntro = "Episode file <{0}> has been successfully copied";
+    /**
+     * When the download has not landed yet, waits for it on the Drive change feed; the element is then handed to the
+     * context's retry engine, which still checks its children and polls if the feed is disabled, fails or doesn't bring it in time.
+     * Without a retry engine the element is looked up once, right away.
+     */
+    private CompletableFuture<File> getDownloadedElement(String elementName, boolean isFolder, Supplier<File> lookup,
+                                                         Predicate<File> accepted, CopyContext context) {
+        String knownId = context.knownDriveId(CopyContext.DOWNLOADED_ELEMENT);
+        if (StringUtils.isNotEmpty(knownId)) {
+            File knownElement = new File().setId(knownId).setName(elementName);
+            return CompletableFuture.completedFuture(isFolder ? knownElement.setMimeType(FOLDER_MIME_TYPE) : knownElement);
+        }
+        return lookUpDownloadedElement(elementName, isFolder, lookup, accepted, context)
+                .thenApply(downloadedElement -> {
+                    context.resolved(CopyContext.DOWNLOADED_ELEMENT, downloadedElement);
+                    return downloadedElement;
+                });
+    }
+
+    private CompletableFuture<File> lookUpDownloadedElement(String elementName, boolean isFolder, Supplier<File> lookup,
+                                                            Predicate<File> accepted, CopyContext context) {
+        if (Objects.isNull(context.getRetryEngine())) {
+            return CompletableFuture.completedFuture(lookup.get());
+        }
+        CompletableFuture<File> seen = Objects.isNull(changesWatcher)
+                ? CompletableFuture.completedFuture(null)
+                : awaitOnChangeFeed(elementName, isFolder, lookup, accepted);
+        return seen.thenCompose(seenElement -> context.getRetryEngine().tryUntilGotDesiredAsync(
+                Objects.isNull(seenElement) ? lookup : () -> seenElement, TOO_MUCH_RETRIES_THRESHOLD));
+    }
+
+    /**
+     * @return completed with the element once it is on the downloads drive, or with null if the feed could not tell in time
+     */
+    private CompletableFuture<File> awaitOnChangeFeed(String elementName, boolean isFolder, Supplier<File> lookup,
+                                                      Predicate<File> accepted) {
+        CompletableFuture<File> landed;
         try {
-            googleDriveApiGateway.copyFile(episodeFile.getId(), destinationSerieFolder);
-            if (StringUtils.isNotEmpty(destinationDescription)) {
-                logger.nLog(msgIntro + " to <{1}> ( GDrive id: {2} )",
-                        episodeFile.getName(), destinationDescription, destinationSerieFolder);
-            } else {
-                logger.nLog(msgIntro, episodeFile.getName());
-            }
+            landed = changesWatcher.awaitElement(elementName, isFolder);
         } catch (IOException e) {
-            logger.nHLog("The <{0}> file could not been copied to <{1}> ( GDrive id: {2} )"
-                    ,episodeFile.getName(), destinationDescription, destinationSerieFolder);
-            e.printStackTrace();
+            logger.nLog("drive change feed not available ({0}), going to look up <{1}> by polling", e.getMessage(), elementName);
+            return CompletableFuture.completedFuture(null);
+        }
+        File found = lookup.get();
+        if (Objects.nonNull(found)) {
+            changesWatcher.forget(elementName, isFolder, landed);
+            return CompletableFuture.completedFuture(found);
+        }
+        logger.nLog("Waiting for <{0}> to land on the downloads drive", elementName);
+        return SharedScheduler.within(landed, configFileLoader.getIntConfig(DRIVE_CHANGES_WAIT_MINUTES, 240), TimeUnit.MINUTES)
+                .handle((landedElement, failure) -> {
+                    changesWatcher.forget(elementName, isFolder, landed);
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    if (cause instanceof TimeoutException) {
+                        logger.nLog("<{0}> not seen on the drive change feed yet, going to look it up by polling", elementName);
+                    } else if (Objects.nonNull(cause)) {
+                        logger.nLog("drive change feed not available ({0}), going to look up <{1}> by polling", cause.getMessage(), elementName);
+                    } else if (accepted.test(landedElement)) {
+                        return landedElement;
+                    } else {
+                        logger.nLog("<{0}> landed out of the expected location, going to look it up by polling", elementName);
+                    }
+                    return null;
+                });
+    }
+
+    private void copySeasonEpisode(File episodeFile, String destinationSerieFolder, String destinationDescription, SeasonCopyReport report, CopyContext context) {
+        String msgIntro = "Episode file <{0}> has been successfully copied";
+        int maxRetries = configFileLoader.getIntConfig(EPISODE_COPY_RETRIES, 0);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                rateLimiter.call("copyFile", COPY, () -> {
+                    googleDriveApiGateway.copyFile(episodeFile.getId(), destinationSerieFolder);
+                    return null;
+                });
+                context.copied(episodeFile, destinationSerieFolder);
+                if (StringUtils.isNotEmpty(destinationDescription)) {
+                    logger.nLog(msgIntro + " to <{1}> ( GDrive id: {2} )",
+                            episodeFile.getName(), destinationDescription, destinationSerieFolder);
+                } else {
+                    logger.nLog(msgIntro, episodeFile.getName());
+                }
+                report.copied(episodeFile.getName());
+                return;
+            } catch (IOException | NoElementFoundException e) {
+                if (attempt < maxRetries) {
+                    logger.nLog("The <{0}> file could not been copied ({1}), will retry ({2}/{3})",
+                            episodeFile.getName(), e.getMessage(), attempt + 1, maxRetries);
+                    waitSeconds(EPISODE_COPY_RETRY_WAIT_SECONDS * (attempt + 1));
+                } else {
+                    logger.nHLog("The <{0}> file could not been copied to <{1}> ( GDrive id: {2} )"
+                            ,episodeFile.getName(), destinationDescription, destinationSerieFolder);
+                    e.printStackTrace();
+                    report.failed(episodeFile.getName());
+                    return;
+                }
+            }
         }
     }
 
     private File getOrCreateSerieFolder(String destinationFullPath, String destinationFolderName) throws IOException, NoElementFoundException {
+        String seriesTeamDriveId = configFileLoader.getConfig(SERIES_TEAM_DRIVE_ID);
+        String parentDirectory = PathUtils.getParentFromFullPath(destinationFullPath);
+        String serieFolderKey = DriveMetadataCache.byName(destinationFolderName, FOLDER, seriesTeamDriveId);
+        String parentFolderKey = DriveMetadataCache.byName(parentDirectory, FOLDER, seriesTeamDriveId);
+        if (isBatchingEnabled() && !metadataCache.contains(serieFolderKey)) {
+            lookupFoldersBatched(Arrays.asList(destinationFolderName, parentDirectory), seriesTeamDriveId);
+        }
         File destinationSerieFolder;
         try {
-            destinationSerieFolder = googleDriveApiGateway.lookupElementByName(destinationFolderName, FOLDER, configFileLoader.getConfig(SERIES_TEAM_DRIVE_ID));
+            destinationSerieFolder = metadataCache.get(serieFolderKey,
+                    () -> rateLimiter.call("lookupElementByName", LOOKUP, () -> googleDriveApiGateway.lookupElementByName(destinationFolderName, FOLDER, seriesTeamDriveId)));
         } catch (NoElementFoundException e) {
-            String parentDirectory = PathUtils.getParentFromFullPath(destinationFullPath);
-            File seriesFolderParent = googleDriveApiGateway.lookupElementByName(parentDirectory, FOLDER, configFileLoader.getConfig(SERIES_TEAM_DRIVE_ID));
-            destinationSerieFolder = googleDriveApiGateway.createFolder(destinationFolderName, seriesFolderParent.getId());
+            File seriesFolderParent = metadataCache.get(parentFolderKey,
+                    () -> rateLimiter.call("lookupElementByName", LOOKUP, () -> googleDriveApiGateway.lookupElementByName(parentDirectory, FOLDER, seriesTeamDriveId)));
+            destinationSerieFolder = createFolder(destinationFolderName, seriesFolderParent, seriesTeamDriveId);
         }
         return destinationSerieFolder;
     }
 
+    /**
+     * Warms the cache up with the folders found, and with the ones Drive answered as missing; the names whose
+     * sub-request failed are left out, so they are looked up one by one instead of being created again.
+     */
+    private void lookupFoldersBatched(List<String> folderNames, String teamDriveId) throws IOException {
+        DriveBatchExecutor.FolderLookup folders = getDriveBatch().lookupFoldersByName(folderNames, teamDriveId);
+        for (String folderName : folderNames) {
+            String folderKey = DriveMetadataCache.byName(folderName, FOLDER, teamDriveId);
+            if (Objects.nonNull(folders.get(folderName))) {
+                metadataCache.put(folderKey, folders.get(folderName));
+            } else if (folders.isMissing(folderName)) {
+                metadataCache.notFound(folderKey);
+            }
+        }
+        if (!folders.getFailed().isEmpty()) {
+            logger.nLog("batched lookup failed for {0}, going to look them up one by one", folders.getFailed());
+        }
+    }
+
+    private File knownFolder(CopyContext context) {
+        String knownId = context.knownDriveId(CopyContext.DESTINATION_FOLDER);
+        return StringUtils.isEmpty(knownId) ? null : new File().setId(knownId).setMimeType(FOLDER_MIME_TYPE);
+    }
+
+    private File getOrCreateSeasonFolder(String destinationFullPath, String seasonFolderName, CopyContext context) throws IOException, NoElementFoundException {
+        File seasonFolder = knownFolder(context);
+        if (Objects.isNull(seasonFolder)) {
+            String destinationSerieFolderName = PathUtils.getCurrentFromFullPath(destinationFullPath);
+            File destinationSerieFolder = getOrCreateSerieFolder(destinationFullPath, destinationSerieFolderName);
+            seasonFolder = getOrCreateSeasonFolder(seasonFolderName, destinationSerieFolder);
+            context.resolved(CopyContext.DESTINATION_FOLDER, seasonFolder);
+        }
+        return seasonFolder;
+    }
+
     private File getOrCreateSeasonFolder(String seasonFolderName, File destinationSerieFolder) throws IOException {
         File seasonFolder;
         try {
-            seasonFolder = googleDriveApiGateway.getChildFromParentByName(seasonFolderName, destinationSerieFolder, true);
+            seasonFolder = metadataCache.get(DriveMetadataCache.childByName(seasonFolderName, destinationSerieFolder.getId(), true),
+                    () -> rateLimiter.call("getChildFromParentByName", LOOKUP, () -> googleDriveApiGateway.getChildFromParentByName(seasonFolderName, destinationSerieFolder, true)));
         } catch (NoElementFoundException e) {
-            seasonFolder = googleDriveApiGateway.createFolder(seasonFolderName, destinationSerieFolder.getId());
+            seasonFolder = createFolder(seasonFolderName, destinationSerieFolder, null);
         }
         return seasonFolder;
     }
 
     private File searchFolderByName(String destinationFolderName) throws IOException, NoElementFoundException {
-        return googleDriveApiGateway
-                .lookupElementByName(destinationFolderName, FOLDER, configFileLoader.getConfig(MOVIES_TEAM_DRIVE_ID));
+        String moviesTeamDriveId = configFileLoader.getConfig(MOVIES_TEAM_DRIVE_ID);
+        return metadataCache.get(DriveMetadataCache.byName(destinationFolderName, FOLDER, moviesTeamDriveId),
+                () -> rateLimiter.call("lookupElementByName", LOOKUP, () -> googleDriveApiGateway.lookupElementByName(destinationFolderName, FOLDER, moviesTeamDriveId)));
     }
 
     private File createFolderByParentName(String parentDirectory, String destinationFolderName) throws IOException, NoElementFoundException {
         File parentFolder = searchFolderByName(parentDirectory);
-        return googleDriveApiGateway.createFolder(destinationFolderName, parentFolder.getId());
+        return createFolder(destinationFolderName, parentFolder, configFileLoader.getConfig(MOVIES_TEAM_DRIVE_ID));
+    }
+
+    private File createFolder(String folderName, File parentFolder, String teamDriveId) throws IOException {
+        File folder;
+        try {
+            folder = rateLimiter.call("createFolder", COPY, () -> googleDriveApiGateway.createFolder(folderName, parentFolder.getId()));
+        } catch (NoElementFoundException e) {
+            throw new IOException("could not create the folder " + folderName, e);
+        }
+        metadataCache.put(DriveMetadataCache.childByName(folderName, parentFolder.getId(), true), folder);
+        if (Objects.nonNull(teamDriveId)) {
+            metadataCache.put(DriveMetadataCache.byName(folderName, FOLDER, teamDriveId), folder);
+        }
+        return folder;
     }
 
 }
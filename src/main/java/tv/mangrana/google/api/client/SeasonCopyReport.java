@@ -0,0 +1,57 @@
+package tv.mangrana.google.api.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static tv.mangrana.utils.Output.msg;
+
+public class SeasonCopyReport {
+
+    private final List<String> copied = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> skipped = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> alreadyPresent = Collections.synchronizedList(new ArrayList<>());
+
+    void copied(String fileName) {
+        copied.add(fileName);
+    }
+
+    void failed(String fileName) {
+        failed.add(fileName);
+    }
+
+    void skipped(String fileName) {
+        skipped.add(fileName);
+    }
+
+    void alreadyPresent(String fileName) {
+        alreadyPresent.add(fileName);
+    }
+
+    public List<String> getCopied() {
+        return new ArrayList<>(copied);
+    }
+
+    public List<String> getFailed() {
+        return new ArrayList<>(failed);
+    }
+
+    public List<String> getSkipped() {
+        return new ArrayList<>(skipped);
+    }
+
+    public List<String> getAlreadyPresent() {
+        return new ArrayList<>(alreadyPresent);
+    }
+
+    public boolean hasFailures() {
+        return !failed.isEmpty();
+    }
+
+    public String summary() {
+        return msg("copied={0}, failed={1}, skipped={2}, already present={3}",
+                copied.size(), failed.size(), skipped.size(), alreadyPresent.size());
+    }
+
+}
@@ -0,0 +1,46 @@
+package tv.mangrana.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter implements MetricsRegistry.Metric {
+
+    private final String name;
+    private final String help;
+    private final String[] labelNames;
+    private final Map<List<String>, LongAdder> values = new ConcurrentHashMap<>();
+
+    Counter(String name, String help, String... labelNames) {
+        this.name = name;
+        this.help = help;
+        this.labelNames = labelNames;
+    }
+
+    public void inc(String... labelValues) {
+        add(1, labelValues);
+    }
+
+    public void add(long amount, String... labelValues) {
+        values.computeIfAbsent(Arrays.asList(labelValues), k -> new LongAdder()).add(amount);
+    }
+
+    public long get(String... labelValues) {
+        LongAdder value = values.get(Arrays.asList(labelValues));
+        return value == null ? 0 : value.sum();
+    }
+
+    @Override
+    public void render(StringBuilder output) {
+        output.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        output.append("# TYPE ").append(name).append(" counter\n");
+        values.forEach((labelValues, value) -> {
+            output.append(name);
+            MetricsRegistry.appendLabels(output, labelNames, labelValues.toArray(new String[0]), null, null);
+            output.append(' ').append(value.sum()).append('\n');
+        });
+    }
+
+}
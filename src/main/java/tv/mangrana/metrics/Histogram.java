@@ -0,0 +1,84 @@
+package tv.mangrana.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram implements MetricsRegistry.Metric {
+
+    /** From a fast API call to a long running copy, in seconds. */
+    public static final double[] SECONDS_BUCKETS = {0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300, 900, 3600, 14400};
+
+    private final String name;
+    private final String help;
+    private final double[] buckets;
+    private final String[] labelNames;
+    private final Map<List<String>, Child> children = new ConcurrentHashMap<>();
+
+    private class Child {
+        final LongAdder[] bucketCounts = new LongAdder[buckets.length];
+        final LongAdder count = new LongAdder();
+        final DoubleAdder sum = new DoubleAdder();
+        Child() {
+            for (int i = 0; i < buckets.length; i++) bucketCounts[i] = new LongAdder();
+        }
+    }
+
+    Histogram(String name, String help, double[] buckets, String... labelNames) {
+        this.name = name;
+        this.help = help;
+        this.buckets = buckets.clone();
+        this.labelNames = labelNames;
+    }
+
+    public void observe(double value, String... labelValues) {
+        Child child = children.computeIfAbsent(Arrays.asList(labelValues), k -> new Child());
+        for (int i = 0; i < buckets.length; i++) {
+            if (value <= buckets[i]) {
+                child.bucketCounts[i].increment();
+                break;
+            }
+        }
+        child.count.increment();
+        child.sum.add(value);
+    }
+
+    public void observeNanosSince(long startNanos, String... labelValues) {
+        observe((System.nanoTime() - startNanos) / 1e9, labelValues);
+    }
+
+    public long getCount(String... labelValues) {
+        Child child = children.get(Arrays.asList(labelValues));
+        return child == null ? 0 : child.count.sum();
+    }
+
+    @Override
+    public void render(StringBuilder output) {
+        output.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        output.append("# TYPE ").append(name).append(" histogram\n");
+        children.forEach((labelValues, child) -> {
+            String[] values = labelValues.toArray(new String[0]);
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += child.bucketCounts[i].sum();
+                output.append(name).append("_bucket");
+                MetricsRegistry.appendLabels(output, labelNames, values, "le", String.valueOf(buckets[i]));
+                output.append(' ').append(cumulative).append('\n');
+            }
+            long count = child.count.sum();
+            output.append(name).append("_bucket");
+            MetricsRegistry.appendLabels(output, labelNames, values, "le", "+Inf");
+            output.append(' ').append(count).append('\n');
+            output.append(name).append("_sum");
+            MetricsRegistry.appendLabels(output, labelNames, values, null, null);
+            output.append(' ').append(child.sum.sum()).append('\n');
+            output.append(name).append("_count");
+            MetricsRegistry.appendLabels(output, labelNames, values, null, null);
+            output.append(' ').append(count).append('\n');
+        });
+    }
+
+}
@@ -0,0 +1,67 @@
+package tv.mangrana.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of the metrics exposed by {@link MetricsServer}, rendered in the Prometheus text format.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    interface Metric {
+        void render(StringBuilder output);
+    }
+
+    public static MetricsRegistry get() {
+        return INSTANCE;
+    }
+
+    public Counter counter(String name, String help, String... labelNames) {
+        return (Counter) metrics.computeIfAbsent(name, n -> new Counter(name, help, labelNames));
+    }
+
+    public Histogram histogram(String name, String help, double[] buckets, String... labelNames) {
+        return (Histogram) metrics.computeIfAbsent(name, n -> new Histogram(name, help, buckets, labelNames));
+    }
+
+    /**
+     * Registers (or replaces) a value read at scrape time, such as a pool occupancy.
+     */
+    public void gauge(String name, String help, Supplier<? extends Number> value) {
+        metrics.put(name, output -> {
+            output.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            output.append("# TYPE ").append(name).append(" gauge\n");
+            output.append(name).append(' ').append(value.get()).append('\n');
+        });
+    }
+
+    public String scrape() {
+        StringBuilder output = new StringBuilder();
+        metrics.values().forEach(metric -> metric.render(output));
+        return output.toString();
+    }
+
+    static void appendLabels(StringBuilder output, String[] labelNames, String[] labelValues, String extraName, String extraValue) {
+        if (labelNames.length == 0 && extraName == null) return;
+        output.append('{');
+        for (int i = 0; i < labelNames.length; i++) {
+            if (i > 0) output.append(',');
+            output.append(labelNames[i]).append("=\"").append(escape(labelValues[i])).append('"');
+        }
+        if (extraName != null) {
+            if (labelNames.length > 0) output.append(',');
+            output.append(extraName).append("=\"").append(extraValue).append('"');
+        }
+        output.append('}');
+    }
+
+    private static String escape(String labelValue) {
+        return String.valueOf(labelValue).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
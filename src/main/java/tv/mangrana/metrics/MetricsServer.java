@@ -0,0 +1,71 @@
+package tv.mangrana.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import tv.mangrana.config.ConfigFileLoader;
+import tv.mangrana.utils.EasyLogger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static tv.mangrana.config.ConfigFileLoader.ProjectConfiguration.METRICS_PORT;
+
+/**
+ * Embedded HTTP endpoint serving the registry at /metrics, for Prometheus to scrape.
+ */
+public class MetricsServer {
+
+    private final HttpServer server;
+
+    /**
+     * @return the running server, or null if no metrics port is configured or it could not be bound
+     */
+    public static MetricsServer startIfConfigured(ConfigFileLoader configFileLoader) {
+        int port = configFileLoader.getIntConfig(METRICS_PORT, 0);
+        if (port <= 0) return null;
+        EasyLogger logger = new EasyLogger("METRICS");
+        try {
+            MetricsServer metricsServer = new MetricsServer(port, MetricsRegistry.get());
+            logger.nLog("metrics exposed at http://0.0.0.0:{0}/metrics", String.valueOf(port));
+            return metricsServer;
+        } catch (IOException e) {
+            logger.nHLog("could not start the metrics endpoint on port {0}: {1}", String.valueOf(port), e.getMessage());
+            return null;
+        }
+    }
+
+    public MetricsServer(int port, MetricsRegistry registry) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> answer(exchange, registry));
+        // started from a daemon thread so the server's dispatcher inherits the daemon flag
+        // and doesn't keep alive a process that is not meant to be immortal
+        Thread starter = new Thread(server::start, "metrics-server-starter");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private void answer(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+        byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package tv.mangrana.downloads.workers.common;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tv.mangrana.jobs.JobFileManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class JobFilesWatcherTest {
+
+    private final Set<String> handlingJobs = ConcurrentHashMap.newKeySet();
+    private Path jobsFolder;
+    private JobFilesWatcher watcher;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        handlingJobs.clear();
+        jobsFolder = Files.createTempDirectory("jobs");
+        watcher = new JobFilesWatcher(fileName -> fileName.endsWith("-grab.log") && !handlingJobs.contains(fileName));
+        watcher.start();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    public void testEmptyJobsFoldersAreWatchedFromStartUp() throws IOException, InterruptedException {
+        Path sonarrJobsFolder = Files.createDirectories(jobsFolder.resolve(JobFileManager.JobFileType.SONARR_JOBS.getFolderName()));
+        Files.createDirectories(jobsFolder.resolve(JobFileManager.JobFileType.RADARR_JOBS.getFolderName()));
+        Path todoFolder = Files.createDirectories(sonarrJobsFolder.resolve("todo"));
+        watcher.watchJobsFolders(jobsFolder, JobFileManager.JobFileType.RADARR_JOBS, JobFileManager.JobFileType.SONARR_JOBS);
+
+        Files.write(todoFolder.resolve("sonarr-grab.log"), "download_id: abc".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertTrue(watcher.awaitJobFiles(15, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNewJobFileWakesUpThePickUp() throws IOException, InterruptedException {
+        watcher.watch(Collections.singletonList(jobsFolder));
+        Files.write(jobsFolder.resolve("sonarr-grab.log"), "download_id: abc".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertTrue(watcher.awaitJobFiles(15, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRewritesOfJobsInHandlingAreIgnored() throws IOException, InterruptedException {
+        watcher.watch(Collections.singletonList(jobsFolder));
+        handlingJobs.add("radarr-grab.log");
+        Files.write(jobsFolder.resolve("radarr-grab.log"), "state: working".getBytes(StandardCharsets.UTF_8));
+        Files.write(jobsFolder.resolve("notes.txt"), "not a job".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertFalse(watcher.awaitJobFiles(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFolderIsWatchedOnlyOnce() {
+        watcher.watch(Collections.singletonList(jobsFolder));
+        watcher.watch(Collections.singletonList(jobsFolder.resolve("..").resolve(jobsFolder.getFileName())));
+
+        Assert.assertEquals(watcher.getWatchedFolders().size(), 1);
+    }
+
+}
@@ -0,0 +1,67 @@
+package tv.mangrana.downloads.workers.common;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class RefreshCoalescerTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @BeforeMethod
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testRequestsForTheSameTargetAreMergedWithinTheWindow() throws InterruptedException {
+        List<String> refreshed = new CopyOnWriteArrayList<>();
+        RefreshCoalescer coalescer = new RefreshCoalescer(200, scheduler);
+        for (int episode = 1; episode <= 10; episode++) {
+            String requested = "episode " + episode;
+            coalescer.request("sonarr", "42", () -> refreshed.add(requested));
+        }
+        coalescer.request("sonarr", "7", () -> refreshed.add("other serie"));
+        Assert.assertEquals(coalescer.getPendingCount(), 2);
+        Assert.assertTrue(refreshed.isEmpty());
+
+        scheduler.shutdown();
+        Assert.assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(refreshed.size(), 2);
+        Assert.assertTrue(refreshed.contains("episode 10"));
+        Assert.assertTrue(refreshed.contains("other serie"));
+        Assert.assertEquals(coalescer.getPendingCount(), 0);
+    }
+
+    @Test
+    public void testFlushRunsThePendingRefreshesOnce() {
+        List<String> refreshed = new CopyOnWriteArrayList<>();
+        RefreshCoalescer coalescer = new RefreshCoalescer(TimeUnit.HOURS.toMillis(1), scheduler);
+        coalescer.request("plex", "/series/Show", () -> refreshed.add("/series/Show"));
+        coalescer.request("plex", "/series/Show", () -> refreshed.add("/series/Show"));
+        coalescer.flush();
+        coalescer.flush();
+        Assert.assertEquals(refreshed.size(), 1);
+    }
+
+    @Test
+    public void testNoWindowRunsRightAway() {
+        List<String> refreshed = new CopyOnWriteArrayList<>();
+        RefreshCoalescer coalescer = new RefreshCoalescer(0, scheduler);
+        coalescer.request("plex", "/movies/Film", () -> refreshed.add("/movies/Film"));
+        Assert.assertEquals(refreshed.size(), 1);
+    }
+
+}
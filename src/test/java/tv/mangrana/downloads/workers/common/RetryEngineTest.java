@@ -0,0 +1,57 @@
+package tv.mangrana.downloads.workers.common;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import tv.mangrana.downloads.workers.common.retry.FixedDelayPolicy;
+import tv.mangrana.exception.TooMuchTriesException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryEngineTest {
+
+    @Test
+    public void testAsyncTryCompletesWithTheDesiredElement() throws InterruptedException, ExecutionException, TimeoutException {
+        RetryEngine<String> retryEngine = new RetryEngine<>("Test", FixedDelayPolicy.everyMinutes(0), msg -> {});
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> desired = retryEngine.tryUntilGotDesiredAsync(
+                () -> attempts.incrementAndGet() < 3 ? null : "found", RetryEngine.TOO_MUCH_RETRIES_INFINITE_THRESHOLD);
+
+        Assert.assertEquals(desired.get(5, TimeUnit.SECONDS), "found");
+        Assert.assertEquals(attempts.get(), 3);
+    }
+
+    @Test
+    public void testAsyncTryFailsPastTheThreshold() throws InterruptedException, TimeoutException {
+        RetryEngine<String> retryEngine = new RetryEngine<>("Test", FixedDelayPolicy.everyMinutes(0), msg -> {});
+
+        CompletableFuture<String> desired = retryEngine.tryUntilGotDesiredAsync(() -> null, 2);
+
+        try {
+            desired.get(5, TimeUnit.SECONDS);
+            Assert.fail("the try should have been given up");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TooMuchTriesException);
+        }
+    }
+
+    @Test
+    public void testInterruptedBlockingTryThrows() {
+        RetryEngine<String> retryEngine = new RetryEngine<>("Test", FixedDelayPolicy.everyMinutes(1), msg -> {});
+        Thread.currentThread().interrupt();
+
+        try {
+            retryEngine.tryUntilGotDesired(() -> null, RetryEngine.TOO_MUCH_RETRIES_INFINITE_THRESHOLD);
+            Assert.fail("the interrupt should have been thrown");
+        } catch (InterruptedException expected) {
+            Assert.assertFalse(Thread.currentThread().isInterrupted());
+        } catch (TooMuchTriesException e) {
+            Assert.fail("unexpected " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package tv.mangrana.downloads.workers.common.admission;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class CopyPriorityTest {
+
+    @Test
+    public void testCriteriaAreParsedInTheConfiguredOrder() {
+        Assert.assertEquals(CopyPriority.parse(CopyPriority.DEFAULT_POLICY), Arrays.asList(
+                CopyPriority.READY, CopyPriority.EPISODES_FIRST, CopyPriority.OLDEST, CopyPriority.SMALLEST));
+        Assert.assertEquals(CopyPriority.parse(" Smallest,ready , smallest"), Arrays.asList(
+                CopyPriority.SMALLEST, CopyPriority.READY));
+    }
+
+    @Test
+    public void testUnknownCriteriaKeepTheArrivalOrder() {
+        Assert.assertEquals(CopyPriority.parse("fifo"), Collections.emptyList());
+        Assert.assertEquals(CopyPriority.parse("biggest,oldest"), Collections.singletonList(CopyPriority.OLDEST));
+        Assert.assertEquals(CopyPriority.parse(null), Collections.emptyList());
+    }
+
+}
@@ -0,0 +1,76 @@
+package tv.mangrana.downloads.workers.common.admission;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class KeyedCopyAdmissionTest {
+
+    private static final String HOLDER = "holder";
+
+    @Test
+    public void testFreedPermitGoesToTheWaiterRankingFirst() {
+        KeyedCopyAdmission<String> admission = new KeyedCopyAdmission<>(job -> "team-drive", 1,
+                now -> Comparator.comparing(String::length), () -> Instant.EPOCH);
+
+        List<String> grants = grantOrder(admission, "ccc", "bb", "a");
+
+        Assert.assertEquals(grants, Arrays.asList("a", "bb", "ccc"));
+    }
+
+    @Test
+    public void testTiesAreGrantedInArrivalOrder() {
+        KeyedCopyAdmission<String> admission = new KeyedCopyAdmission<>(job -> "team-drive", 1);
+
+        List<String> grants = grantOrder(admission, "first", "second", "third");
+
+        Assert.assertEquals(grants, Arrays.asList("first", "second", "third"));
+    }
+
+    @Test
+    public void testGivenUpTurnHandsThePermitOn() {
+        KeyedCopyAdmission<String> admission = new KeyedCopyAdmission<>(job -> "team-drive", 1);
+        admission.acquire(HOLDER);
+        CompletableFuture<Void> givenUp = admission.acquire("given-up");
+        CompletableFuture<Void> next = admission.acquire("next");
+
+        givenUp.cancel(false);
+        admission.release(HOLDER);
+
+        Assert.assertTrue(next.isDone());
+    }
+
+    /**
+     * Holds the only permit while the jobs queue up one after the other, then frees it and records who gets it next.
+     */
+    private List<String> grantOrder(KeyedCopyAdmission<String> admission, String... jobs) {
+        Assert.assertTrue(admission.acquire(HOLDER).isDone());
+        Map<String, CompletableFuture<Void>> turns = new LinkedHashMap<>();
+        for (String job : jobs) {
+            turns.put(job, admission.acquire(job));
+        }
+        List<String> grants = new ArrayList<>();
+        String holder = HOLDER;
+        while (!turns.isEmpty()) {
+            Assert.assertFalse(turns.values().stream().anyMatch(CompletableFuture::isDone), "granted while the permit is held");
+            admission.release(holder);
+            holder = turns.entrySet().stream()
+                    .filter(turn -> turn.getValue().isDone())
+                    .map(Map.Entry::getKey)
+                    .findFirst().orElse(null);
+            Assert.assertNotNull(holder, "the freed permit was not granted");
+            turns.remove(holder);
+            grants.add(holder);
+        }
+        return grants;
+    }
+
+}
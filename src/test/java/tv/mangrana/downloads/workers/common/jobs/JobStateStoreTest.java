@@ -0,0 +1,85 @@
+package tv.mangrana.downloads.workers.common.jobs;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class JobStateStoreTest {
+
+    @Test
+    public void testProgressSurvivesARestart() throws IOException {
+        Path storeFile = Files.createTempDirectory("job-states").resolve("job_states.log");
+        JobStateStore store = new JobStateStore(storeFile);
+        store.recordState("sonarr-grab.log", "working");
+        store.recordElementName("sonarr-grab.log", "Serie.S01.1080p\tWEB-DL");
+        store.recordDriveId("sonarr-grab.log", "downloaded_element", "drive-id-1");
+        store.recordState("radarr-grab.log", "working");
+        store.forget("radarr-grab.log");
+        store.close();
+        Files.write(storeFile, "torn-line-without-columns".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        JobStateStore restartedStore = new JobStateStore(storeFile);
+
+        JobStateStore.JobState savedState = restartedStore.get("sonarr-grab.log");
+        Assert.assertEquals(savedState.getState(), "working");
+        Assert.assertEquals(savedState.getElementName(), "Serie.S01.1080p\tWEB-DL");
+        Assert.assertEquals(savedState.getDriveIds().get("downloaded_element"), "drive-id-1");
+        Assert.assertNull(restartedStore.get("radarr-grab.log"));
+        Assert.assertEquals(Files.readAllLines(storeFile).size(), 3);
+    }
+
+    @Test
+    public void testLogIsCompactedWhenItGrows() throws IOException {
+        Path storeFile = Files.createTempDirectory("job-states").resolve("job_states.log");
+        JobStateStore store = new JobStateStore(storeFile);
+        for (int i = 0; i < 1000; i++) {
+            store.recordState("sonarr-grab.log", i % 2 == 0 ? "initiated" : "working");
+        }
+
+        Assert.assertTrue(Files.readAllLines(storeFile).size() < 1000);
+        Assert.assertEquals(store.get("sonarr-grab.log").getState(), "working");
+    }
+
+    @Test
+    public void testTruncatedRecordTailIsDropped() throws IOException {
+        Path storeFile = Files.createTempDirectory("job-states").resolve("job_states.log");
+        JobStateStore store = new JobStateStore(storeFile);
+        store.recordElementName("sonarr-grab.log", "Serie.S01.1080p");
+        store.recordDriveId("sonarr-grab.log", "downloaded_element", "drive-id-1");
+        store.close();
+        Files.write(storeFile, "sonarr-grab.log\telement_name\tSerie.S0".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        JobStateStore restartedStore = new JobStateStore(storeFile);
+
+        Assert.assertEquals(restartedStore.get("sonarr-grab.log").getElementName(), "Serie.S01.1080p");
+        restartedStore.recordState("sonarr-grab.log", "working");
+        restartedStore.close();
+        JobStateStore.JobState savedState = new JobStateStore(storeFile).get("sonarr-grab.log");
+        Assert.assertEquals(savedState.getElementName(), "Serie.S01.1080p");
+        Assert.assertEquals(savedState.getDriveIds().get("downloaded_element"), "drive-id-1");
+        Assert.assertEquals(savedState.getState(), "working");
+    }
+
+    @Test
+    public void testAppendsKeepPersistingWhenCompactionFails() throws IOException {
+        Path storeFile = Files.createTempDirectory("job-states").resolve("job_states.log");
+        JobStateStore store = new JobStateStore(storeFile);
+        Path blockingTmpFile = Files.createDirectory(storeFile.resolveSibling("job_states.log.tmp"));
+        for (int i = 0; i < 1000; i++) {
+            store.recordState("sonarr-grab.log", i % 2 == 0 ? "initiated" : "working");
+        }
+        store.recordElementName("sonarr-grab.log", "Serie.S01.1080p");
+        store.close();
+        Files.delete(blockingTmpFile);
+
+        JobStateStore restartedStore = new JobStateStore(storeFile);
+        Assert.assertEquals(restartedStore.get("sonarr-grab.log").getState(), "working");
+        Assert.assertEquals(restartedStore.get("sonarr-grab.log").getElementName(), "Serie.S01.1080p");
+    }
+
+}
@@ -4,6 +4,8 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 import tv.mangrana.jobs.JobFileManager;
 
+import java.time.Duration;
+
 public class JobsResumeTest {
 
     JobsResume jobsResume = new JobsResume();
@@ -47,4 +49,18 @@ public class JobsResumeTest {
         jobsResume.resumeJobsLogPrint();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testFinishedJobsAreEvicted () throws InterruptedException {
+        JobsResume shortLivedResume = new JobsResume(Duration.ofMillis(100));
+        shortLivedResume.put(JobFileManager.JobFileType.SONARR_JOBS, "finished job", "finished");
+        shortLivedResume.put(JobFileManager.JobFileType.RADARR_JOBS, "failed job", "error");
+        shortLivedResume.put(JobFileManager.JobFileType.SONARR_JOBS, "ongoing job", "working");
+        Thread.sleep(200);
+
+        shortLivedResume.resumeJobsLogPrint();
+
+        Assert.assertEquals(shortLivedResume.size(), 1);
+        Assert.assertFalse(shortLivedResume.sameResumeAlreadyPrinted());
+    }
+
+}
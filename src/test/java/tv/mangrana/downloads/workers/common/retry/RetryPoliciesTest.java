@@ -0,0 +1,53 @@
+package tv.mangrana.downloads.workers.common.retry;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+public class RetryPoliciesTest {
+
+    @Test
+    public void testTitlePolicyIsResolvedFromConfig() {
+        String configured = "SeasonOnGoogle=eta, MovieOnGoogle=exponential";
+        Assert.assertEquals(RetryPolicies.resolveType(configured, "SeasonOnGoogle"), RetryPolicies.PolicyType.ETA);
+        Assert.assertEquals(RetryPolicies.resolveType(configured, "MovieOnGoogle"), RetryPolicies.PolicyType.EXPONENTIAL);
+        Assert.assertEquals(RetryPolicies.resolveType(configured, "EpisodeOnGoogle"), RetryPolicies.PolicyType.FIXED);
+        Assert.assertEquals(RetryPolicies.resolveType("MovieOnGoogle=unknown", "MovieOnGoogle"), RetryPolicies.PolicyType.FIXED);
+        Assert.assertEquals(RetryPolicies.resolveType(null, "MovieOnGoogle"), RetryPolicies.PolicyType.FIXED);
+    }
+
+    @Test
+    public void testExponentialBackoffIsCapped() {
+        ExponentialBackoffPolicy policy = new ExponentialBackoffPolicy(1000, 5000, 0);
+        Assert.assertEquals(policy.delayMillis(1), 1000);
+        Assert.assertEquals(policy.delayMillis(2), 2000);
+        Assert.assertEquals(policy.delayMillis(3), 4000);
+        Assert.assertEquals(policy.delayMillis(4), 5000);
+        Assert.assertEquals(policy.delayMillis(100), 5000);
+    }
+
+    @Test
+    public void testEtaAwareWaitsUntilTheEstimatedCompletion() {
+        RetryPolicy fallback = new FixedDelayPolicy(TimeUnit.MINUTES.toMillis(10));
+        Instant eta = Instant.now().plus(Duration.ofHours(1));
+        EtaAwarePolicy policy = new EtaAwarePolicy(() -> eta, Duration.ofMinutes(2), TimeUnit.HOURS.toMillis(2), fallback);
+        long firstDelay = policy.delayMillis(1);
+        Assert.assertTrue(firstDelay > TimeUnit.MINUTES.toMillis(61) && firstDelay <= TimeUnit.MINUTES.toMillis(62));
+        Assert.assertEquals(policy.delayMillis(2), TimeUnit.MINUTES.toMillis(10));
+
+        EtaAwarePolicy unknownEta = new EtaAwarePolicy(() -> null, Duration.ofMinutes(2), TimeUnit.HOURS.toMillis(2), fallback);
+        Assert.assertEquals(unknownEta.delayMillis(1), TimeUnit.MINUTES.toMillis(10));
+    }
+
+    @Test
+    public void testFarEtaWaitIsCapped() {
+        RetryPolicy fallback = new FixedDelayPolicy(TimeUnit.MINUTES.toMillis(10));
+        Instant bogusEta = Instant.now().plus(Duration.ofDays(3));
+        EtaAwarePolicy policy = new EtaAwarePolicy(() -> bogusEta, Duration.ofMinutes(2), TimeUnit.MINUTES.toMillis(10), fallback);
+        Assert.assertEquals(policy.delayMillis(1), TimeUnit.MINUTES.toMillis(10));
+    }
+
+}
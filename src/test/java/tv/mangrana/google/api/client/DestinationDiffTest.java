@@ -0,0 +1,28 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.services.drive.model.File;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+public class DestinationDiffTest {
+
+    @Test
+    public void testOnlyMatchingFilesArePresent() {
+        DestinationDiff diff = DestinationDiff.of(Arrays.asList(
+                new File().setName("S01E01.mkv").setSize(100L).setMd5Checksum("aaa"),
+                new File().setName("S01E02.mkv").setSize(50L),
+                new File().setName("S01E03.mkv").setSize(100L).setMd5Checksum("ccc"),
+                new File().setName("S01E04.mkv").setTrashed(true)));
+
+        Assert.assertTrue(diff.isPresent(new File().setName("S01E01.mkv").setSize(100L).setMd5Checksum("aaa")));
+        Assert.assertTrue(diff.isPresent(new File().setName("S01E01.mkv")));
+        Assert.assertFalse(diff.isPresent(new File().setName("S01E02.mkv").setSize(200L)), "a partial copy has another size");
+        Assert.assertFalse(diff.isPresent(new File().setName("S01E03.mkv").setSize(100L).setMd5Checksum("other")));
+        Assert.assertFalse(diff.isPresent(new File().setName("S01E04.mkv")), "trashed files don't count");
+        Assert.assertFalse(diff.isPresent(new File().setName("S01E05.mkv")));
+        Assert.assertFalse(DestinationDiff.of(null).isPresent(new File().setName("S01E01.mkv")));
+    }
+
+}
@@ -0,0 +1,128 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DriveBatchExecutorTest {
+
+    private static final String BOUNDARY = "batch_stub";
+    private static final String CRLF = "\r\n";
+
+    private HttpServer server;
+    private final AtomicInteger batchHits = new AtomicInteger();
+    private DriveBatchExecutor driveBatch;
+
+    @BeforeMethod
+    public void startStubServer() throws IOException {
+        batchHits.set(0);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/batch/drive/v3", this::answerBatch);
+        server.start();
+        Drive drive = new Drive.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(), null)
+                .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+                .setApplicationName("batch-test")
+                .build();
+        driveBatch = new DriveBatchExecutor(drive);
+    }
+
+    @AfterMethod
+    public void stopStubServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testCopiesAreGroupedByDriveBatchLimit() {
+        List<File> episodes = new ArrayList<>();
+        for (int i = 1; i <= 150; i++) {
+            episodes.add(new File().setId("episode-" + i).setName("S01E" + i + ".mkv"));
+        }
+        episodes.add(new File().setId("fail-me").setName("S01E151.mkv"));
+        SeasonCopyReport report = new SeasonCopyReport();
+
+        List<File> failed = driveBatch.copyFiles(episodes, "season-folder-id", report);
+
+        Assert.assertEquals(batchHits.get(), 2);
+        Assert.assertEquals(driveBatch.getBatchedCalls(), 151);
+        Assert.assertEquals(report.getCopied().size(), 150);
+        Assert.assertEquals(failed.size(), 1);
+        Assert.assertEquals(failed.get(0).getId(), "fail-me");
+    }
+
+    @Test
+    public void testFolderLookupsShareOneRoundTrip() throws IOException {
+        DriveBatchExecutor.FolderLookup found = driveBatch.lookupFoldersByName(
+                Arrays.asList("exists Serie", "Missing Serie"), "series-drive-id");
+
+        Assert.assertEquals(batchHits.get(), 1);
+        Assert.assertEquals(found.get("exists Serie").getId(), "folder-id");
+        Assert.assertFalse(found.isMissing("exists Serie"));
+        Assert.assertTrue(found.isMissing("Missing Serie"));
+    }
+
+    @Test
+    public void testFailedFolderLookupIsNotTakenAsMissing() throws IOException {
+        DriveBatchExecutor.FolderLookup found = driveBatch.lookupFoldersByName(
+                Arrays.asList("fail-me Serie", "Missing Serie"), "series-drive-id");
+
+        Assert.assertNull(found.get("fail-me Serie"));
+        Assert.assertFalse(found.isMissing("fail-me Serie"));
+        Assert.assertTrue(found.getFailed().contains("fail-me Serie"));
+        Assert.assertTrue(found.isMissing("Missing Serie"));
+    }
+
+    private void answerBatch(HttpExchange exchange) throws IOException {
+        batchHits.incrementAndGet();
+        String requestBody = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+        String[] parts = requestBody.split("application/http");
+        StringBuilder response = new StringBuilder();
+        for (int i = 1; i < parts.length; i++) {
+            response.append("--").append(BOUNDARY).append(CRLF)
+                    .append("Content-Type: application/http").append(CRLF)
+                    .append("Content-ID: <response-").append(i).append(">").append(CRLF)
+                    .append(CRLF)
+                    .append(innerResponse(parts[i])).append(CRLF);
+        }
+        response.append("--").append(BOUNDARY).append("--").append(CRLF);
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "multipart/mixed; boundary=" + BOUNDARY);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private String innerResponse(String requestPart) {
+        String status = "HTTP/1.1 200 OK";
+        String json;
+        if (requestPart.contains("fail-me")) {
+            status = "HTTP/1.1 403 Forbidden";
+            json = "{\"error\":{\"code\":403,\"message\":\"User Rate Limit Exceeded\"}}";
+        } else if (requestPart.contains("/copy")) {
+            json = "{\"id\":\"copied-id\",\"name\":\"copied\"}";
+        } else if (requestPart.contains("exists")) {
+            json = "{\"files\":[{\"id\":\"folder-id\",\"name\":\"exists Serie\"}]}";
+        } else {
+            json = "{\"files\":[]}";
+        }
+        return status + CRLF + "Content-Type: application/json; charset=UTF-8" + CRLF + CRLF + json;
+    }
+
+}
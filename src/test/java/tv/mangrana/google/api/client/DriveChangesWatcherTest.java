@@ -0,0 +1,120 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DriveChangesWatcherTest {
+
+    private HttpServer server;
+    private Drive drive;
+    private Path pageTokenFile;
+    private ScheduledExecutorService scheduler;
+    private final AtomicInteger startTokenHits = new AtomicInteger();
+    private volatile boolean movieLanded;
+
+    @BeforeMethod
+    public void startFakeChangesEndpoint() throws IOException {
+        startTokenHits.set(0);
+        movieLanded = false;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/drive/v3/changes", this::answerChanges);
+        server.start();
+        drive = new Drive.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(), null)
+                .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+                .setApplicationName("changes-test")
+                .build();
+        pageTokenFile = Files.createTempDirectory("drive-changes").resolve("page_token");
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterMethod
+    public void stopFakeChangesEndpoint() {
+        scheduler.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    public void testWaitingJobIsWokenByTheChangeFeed() throws Exception {
+        DriveChangesWatcher watcher = newWatcher();
+
+        CompletableFuture<File> landed = watcher.awaitElement("Some.Movie.2022.mkv", false);
+        Assert.assertFalse(landed.isDone());
+        movieLanded = true;
+
+        File movieFile = landed.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(movieFile.getId(), "movie-file-id");
+        Assert.assertEquals(watcher.getWaitingCount(), 0);
+        Assert.assertEquals(new String(Files.readAllBytes(pageTokenFile), StandardCharsets.UTF_8), "2");
+    }
+
+    @Test
+    public void testForgettingOneWaiterKeepsTheOthersForTheSameName() throws Exception {
+        DriveChangesWatcher watcher = newWatcher();
+
+        CompletableFuture<File> givenUp = watcher.awaitElement("Some.Movie.2022.mkv", false);
+        CompletableFuture<File> stillWaiting = watcher.awaitElement("Some.Movie.2022.mkv", false);
+        watcher.forget("Some.Movie.2022.mkv", false, givenUp);
+        Assert.assertEquals(watcher.getWaitingCount(), 1);
+        movieLanded = true;
+
+        Assert.assertEquals(stillWaiting.get(5, TimeUnit.SECONDS).getId(), "movie-file-id");
+        Assert.assertFalse(givenUp.isDone());
+    }
+
+    @Test
+    public void testPersistedPageTokenIsResumed() throws Exception {
+        newWatcher().awaitElement("Another.Movie.mkv", false);
+        Assert.assertEquals(startTokenHits.get(), 1);
+
+        DriveChangesWatcher restartedWatcher = newWatcher();
+        restartedWatcher.awaitElement("Another.Movie.mkv", false);
+
+        Assert.assertEquals(startTokenHits.get(), 1);
+        Assert.assertEquals(restartedWatcher.getPageToken(), "1");
+    }
+
+    private DriveChangesWatcher newWatcher() {
+        return new DriveChangesWatcher(() -> drive, "downloads-drive-id", pageTokenFile, 50, scheduler);
+    }
+
+    private void answerChanges(HttpExchange exchange) throws IOException {
+        String json;
+        if (exchange.getRequestURI().getPath().endsWith("/startPageToken")) {
+            startTokenHits.incrementAndGet();
+            json = "{\"startPageToken\":\"1\"}";
+        } else if (movieLanded && exchange.getRequestURI().getQuery().contains("pageToken=1")) {
+            json = "{\"newStartPageToken\":\"2\",\"changes\":[{\"fileId\":\"movie-file-id\",\"removed\":false,"
+                    + "\"file\":{\"id\":\"movie-file-id\",\"name\":\"Some.Movie.2022.mkv\",\"mimeType\":\"video/x-matroska\"}}]}";
+        } else {
+            String currentToken = exchange.getRequestURI().getQuery().contains("pageToken=2") ? "2" : "1";
+            json = "{\"newStartPageToken\":\"" + currentToken + "\",\"changes\":[]}";
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+}
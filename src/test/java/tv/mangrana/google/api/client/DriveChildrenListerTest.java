@@ -0,0 +1,91 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DriveChildrenListerTest {
+
+    private HttpServer server;
+    private Drive drive;
+    private final AtomicInteger pageHits = new AtomicInteger();
+    private volatile String requestedQuery;
+
+    @BeforeMethod
+    public void startFakeFilesEndpoint() throws IOException {
+        pageHits.set(0);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/drive/v3/files", this::answerPage);
+        server.start();
+        drive = new Drive.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(), null)
+                .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+                .setApplicationName("children-test")
+                .build();
+    }
+
+    @AfterMethod
+    public void stopFakeFilesEndpoint() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testNextPageIsFetchedOnlyWhenNeeded() {
+        Iterator<File> children = newLister().iterate(new File().setId("season-folder-id"));
+
+        Assert.assertEquals(children.next().getName(), "S01E01.mkv");
+        Assert.assertEquals(children.next().getName(), "S01E02.mkv");
+        Assert.assertEquals(pageHits.get(), 1);
+        Assert.assertTrue(requestedQuery.contains("files(id, name, mimeType, size, md5Checksum)"));
+        Assert.assertTrue(requestedQuery.contains("mimeType != 'application/vnd.google-apps.folder'"));
+
+        Assert.assertEquals(children.next().getName(), "S01E03.mkv.part");
+        Assert.assertFalse(children.hasNext());
+        Assert.assertEquals(pageHits.get(), 2);
+    }
+
+    @Test
+    public void testListCollectsEveryPage() throws IOException {
+        List<File> children = newLister().list(new File().setId("season-folder-id"));
+
+        Assert.assertEquals(children.size(), 3);
+        Assert.assertEquals(children.get(0).getSize(), Long.valueOf(1000));
+    }
+
+    private DriveChildrenLister newLister() {
+        return new DriveChildrenLister(() -> drive, DriveRateLimiter.unlimited(), 2);
+    }
+
+    private void answerPage(HttpExchange exchange) throws IOException {
+        pageHits.incrementAndGet();
+        String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+        requestedQuery = query;
+        String json = query.contains("pageToken=page2")
+                ? "{\"files\":[{\"id\":\"3\",\"name\":\"S01E03.mkv.part\",\"size\":\"10\"},"
+                + "{\"id\":\"4\",\"name\":\"Subs\",\"mimeType\":\"application/vnd.google-apps.folder\"}]}"
+                : "{\"nextPageToken\":\"page2\",\"files\":[{\"id\":\"1\",\"name\":\"S01E01.mkv\",\"size\":\"1000\"},"
+                + "{\"id\":\"2\",\"name\":\"S01E02.mkv\",\"size\":\"1000\"}]}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+}
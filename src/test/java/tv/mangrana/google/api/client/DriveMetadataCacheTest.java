@@ -0,0 +1,83 @@
+package tv.mangrana.google.api.client;
+
+import com.google.api.services.drive.model.File;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tv.mangrana.exception.NoElementFoundException;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DriveMetadataCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeMethod
+    public void resetLoads() {
+        loads.set(0);
+    }
+
+    @Test
+    public void testFoundElementIsServedUntilItsTtlExpires() throws Exception {
+        DriveMetadataCache cache = new DriveMetadataCache(100, 100, 10);
+        String key = DriveMetadataCache.byId("folder-id");
+
+        Assert.assertEquals(cache.get(key, this::loadFolder).getId(), "folder-id");
+        Assert.assertEquals(cache.get(key, this::loadFolder).getId(), "folder-id");
+        Assert.assertEquals(loads.get(), 1);
+        Assert.assertEquals(cache.getHits(), 1);
+
+        Thread.sleep(150);
+        cache.get(key, this::loadFolder);
+        Assert.assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void testNotFoundIsCachedForItsOwnTtl() throws Exception {
+        DriveMetadataCache cache = new DriveMetadataCache(60000, 100, 10);
+        String key = DriveMetadataCache.byId("missing-id");
+
+        Assert.assertFalse(tryGet(cache, key, this::loadNothing));
+        Assert.assertFalse(tryGet(cache, key, this::loadFolder));
+        Assert.assertEquals(loads.get(), 1);
+        Assert.assertEquals(cache.getNotFoundHits(), 1);
+
+        Thread.sleep(150);
+        Assert.assertTrue(tryGet(cache, key, this::loadFolder));
+        Assert.assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void testInvalidatedElementIsLoadedAgain() throws Exception {
+        DriveMetadataCache cache = new DriveMetadataCache(60000, 60000, 10);
+        String key = DriveMetadataCache.byId("folder-id");
+        cache.notFound(key);
+        Assert.assertTrue(cache.contains(key));
+
+        cache.invalidate(key);
+        Assert.assertFalse(cache.contains(key));
+        Assert.assertEquals(cache.get(key, this::loadFolder).getId(), "folder-id");
+        Assert.assertEquals(loads.get(), 1);
+    }
+
+    private boolean tryGet(DriveMetadataCache cache, String key, DriveCall<File> loader) throws IOException {
+        try {
+            cache.get(key, loader);
+            return true;
+        } catch (NoElementFoundException e) {
+            return false;
+        }
+    }
+
+    private File loadFolder() {
+        loads.incrementAndGet();
+        return new File().setId("folder-id");
+    }
+
+    private File loadNothing() throws NoElementFoundException {
+        loads.incrementAndGet();
+        throw new NoElementFoundException("not found");
+    }
+
+}
@@ -0,0 +1,58 @@
+package tv.mangrana.google.api.client;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class DriveRateLimiterTest {
+
+    @Test
+    public void testBurstIsServedAndThenThrottled() throws Exception {
+        DriveRateLimiter limiter = new DriveRateLimiter(20, 5, 0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(limiter.call("test", DriveRateLimiter.Priority.LOOKUP, () -> "ok"), "ok");
+        }
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire(DriveRateLimiter.Priority.LOOKUP);
+        }
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+    }
+
+    @Test
+    public void testPauseHoldsEveryCaller() {
+        DriveRateLimiter limiter = DriveRateLimiter.unlimited();
+        limiter.pauseFor(300);
+        long start = System.nanoTime();
+        limiter.acquire(DriveRateLimiter.Priority.COPY);
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+    }
+
+    @Test
+    public void testCopiesGoBeforeWaitingLookups() throws Exception {
+        DriveRateLimiter limiter = new DriveRateLimiter(10, 1, 0);
+        limiter.acquire(DriveRateLimiter.Priority.LOOKUP);
+        List<String> served = new CopyOnWriteArrayList<>();
+        Thread lookup = new Thread(() -> {
+            limiter.acquire(DriveRateLimiter.Priority.LOOKUP);
+            served.add("lookup");
+        });
+        Thread copy = new Thread(() -> {
+            limiter.acquire(DriveRateLimiter.Priority.COPY);
+            served.add("copy");
+        });
+        lookup.start();
+        Thread.sleep(20);
+        copy.start();
+        lookup.join(2000);
+        copy.join(2000);
+        Assert.assertEquals(served.get(0), "copy");
+        Assert.assertEquals(served.size(), 2);
+    }
+
+}
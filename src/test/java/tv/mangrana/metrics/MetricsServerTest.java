@@ -0,0 +1,39 @@
+package tv.mangrana.metrics;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+public class MetricsServerTest {
+
+    @Test
+    public void testMetricsAreExposedInPrometheusFormat() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_calls_total", "calls", "operation").inc("copy \"file\"");
+        Histogram latency = registry.histogram("test_latency_seconds", "latency", new double[]{0.1, 1}, "operation");
+        latency.observe(0.5, "copy");
+        latency.observe(5, "copy");
+        registry.gauge("test_pool_active", "active workers", () -> 3);
+
+        MetricsServer server = new MetricsServer(0, registry);
+        String scrape;
+        try (InputStream response = new URL("http://localhost:" + server.getPort() + "/metrics").openStream()) {
+            scrape = IOUtils.toString(response, StandardCharsets.UTF_8);
+        } finally {
+            server.stop();
+        }
+
+        Assert.assertTrue(scrape.contains("test_calls_total{operation=\"copy \\\"file\\\"\"} 1"), scrape);
+        Assert.assertTrue(scrape.contains("test_latency_seconds_bucket{operation=\"copy\",le=\"0.1\"} 0"), scrape);
+        Assert.assertTrue(scrape.contains("test_latency_seconds_bucket{operation=\"copy\",le=\"1.0\"} 1"), scrape);
+        Assert.assertTrue(scrape.contains("test_latency_seconds_bucket{operation=\"copy\",le=\"+Inf\"} 2"), scrape);
+        Assert.assertTrue(scrape.contains("test_latency_seconds_count{operation=\"copy\"} 2"), scrape);
+        Assert.assertTrue(scrape.contains("test_pool_active 3"), scrape);
+    }
+
+}